@@ -0,0 +1,367 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file GeneratorBenchmark.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import es.ull.mazesolver.maze.MazeCreationAlgorithm;
+import es.ull.mazesolver.maze.MazeGrid;
+
+/**
+ * Banco de pruebas que mide el rendimiento de los algoritmos de generación de
+ * laberintos. Para cada combinación de algoritmo, tamaño, número de ciclos y
+ * número de componentes se crea el laberinto varias veces y se muestra el
+ * número de laberintos generados por segundo, el tiempo medio de cada uno y la
+ * memoria reservada durante su creación por todos los hilos de la máquina
+ * virtual, incluidos los del {@link java.util.concurrent.ForkJoinPool} que
+ * utilizan los algoritmos paralelos.
+ *
+ * Las opciones se pasan como argumentos de la forma {@code --opción=valor}:
+ * <ul>
+ * <li>{@code generators}: Nombres de las clases de
+ * {@link es.ull.mazesolver.maze.algorithm} separados por comas.</li>
+ * <li>{@code sizes}: Lados de los laberintos (cuadrados) a generar.</li>
+ * <li>{@code cycles}: Números de ciclos a añadir.</li>
+ * <li>{@code components}: Números de componentes a generar.</li>
+ * <li>{@code warmup}: Número de iteraciones de calentamiento.</li>
+ * <li>{@code iterations}: Número de iteraciones medidas.</li>
+ * <li>{@code max-time}: Tiempo máximo en segundos de una iteración. Si se
+ * supera, no se prueban tamaños mayores para ese algoritmo.</li>
+ * </ul>
+ *
+ * Cada combinación se mide en un proceso aparte, lanzado con la opción interna
+ * {@code run} y los mismos argumentos de la máquina virtual.
+ */
+public class GeneratorBenchmark {
+  private static final String ALGORITHM_PACKAGE = "es.ull.mazesolver.maze.algorithm.";
+
+  private static String [] s_generators = {"EmptyMaze", "RecursiveBacktracking",
+                                           "RecursiveDivision", "Kruskal", "Prim",
+                                           "HuntAndKill", "AldousBroder", "Wilson",
+                                           "Eller", "TiledMaze"};
+  private static int [] s_sizes = {10, 100, 1000, 4000};
+  private static int [] s_cycles = {0};
+  private static int [] s_components = {1};
+  private static int s_warmup = 3;
+  private static int s_iterations = 5;
+  private static double s_max_time = 60;
+
+  // Combinación a medir en este proceso, cuando lo lanza el propio banco de
+  // pruebas
+  private static String s_run;
+
+  // Evita que el compilador elimine la generación de laberintos no utilizados
+  private static volatile int s_sink;
+
+  /**
+   * Punto de entrada del banco de pruebas.
+   *
+   * @param args
+   *          Opciones, con el formato descrito en la documentación de la clase.
+   * @throws Exception
+   *           Si no se puede instanciar alguno de los algoritmos indicados.
+   */
+  public static void main (String [] args) throws Exception {
+    parseArguments(args);
+
+    if (s_run != null) {
+      String [] parts = s_run.split(",");
+      String name = parts[0];
+      int size = Integer.parseInt(parts[1]), cycles = Integer.parseInt(parts[2]),
+          components = Integer.parseInt(parts[3]);
+      try {
+        measure(name, size, cycles, components);
+      }
+      catch (Exception | OutOfMemoryError e) {
+        System.out.printf("%-22s %6d %6d %6d %12s  %s%n", name, size, cycles, components,
+            "n/a", e instanceof InvocationTargetException? e.getCause() : e);
+      }
+      return;
+    }
+
+    System.out.printf("%-22s %6s %6s %6s %12s %12s %12s%n", "Generator", "Size",
+        "Cycles", "Comps", "ops/s", "ms/op", "MB/op");
+
+    for (String name: s_generators) {
+      // Se comprueba aquí que el algoritmo existe para no lanzar procesos que
+      // van a fallar
+      getConstructor(name);
+
+      sizes:
+      for (int size: s_sizes) {
+        for (int cycles: s_cycles) {
+          for (int components: s_components) {
+            if (!runConfiguration(name, size, cycles, components))
+              break sizes;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Mide una combinación de parámetros en una máquina virtual nueva y muestra
+   * el resultado. Así cada medida empieza con el mismo estado y, si no termina
+   * en el tiempo máximo (por ejemplo cuando se piden más ciclos de los que el
+   * algoritmo puede llegar a añadir), se puede detener el proceso sin que siga
+   * ocupando un procesador durante el resto de medidas.
+   *
+   * @return {@code false} si la medida ha superado el tiempo máximo.
+   */
+  private static boolean runConfiguration (String name, int size, int cycles, int components)
+      throws Exception {
+    ArrayList <String> command = new ArrayList <String>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(GeneratorBenchmark.class.getName());
+    command.add("--warmup=" + s_warmup);
+    command.add("--iterations=" + s_iterations);
+    command.add("--run=" + name + "," + size + "," + cycles + "," + components);
+
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    final Process process = builder.start();
+
+    FutureTask <String> task = new FutureTask <String>(new Callable <String>() {
+      @Override
+      public String call () throws Exception {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        int status = process.waitFor();
+        if (status != 0 || line == null)
+          throw new IOException("Benchmark process exited with status " + status);
+        return line;
+      }
+    });
+
+    Thread reader = new Thread(task, "benchmark-" + name);
+    reader.setDaemon(true);
+    reader.start();
+
+    try {
+      System.out.println(task.get((long) (s_max_time * 1000) * (s_warmup + s_iterations),
+                                  TimeUnit.MILLISECONDS));
+    }
+    catch (TimeoutException e) {
+      process.destroy();
+      task.cancel(true);
+      System.out.printf("%-22s %6d %6d %6d %12s%n", name, size, cycles, components,
+          "timeout");
+      return false;
+    }
+    catch (ExecutionException e) {
+      System.out.printf("%-22s %6d %6d %6d %12s  %s%n", name, size, cycles, components,
+          "n/a", e.getCause());
+    }
+    return true;
+  }
+
+  /**
+   * Realiza las iteraciones de una combinación de parámetros en la máquina
+   * virtual actual y muestra la línea con el resultado.
+   */
+  private static void measure (String name, int size, int cycles, int components)
+      throws Exception {
+    Constructor <? extends MazeCreationAlgorithm> ctor = getConstructor(name);
+    com.sun.management.ThreadMXBean allocation = getAllocationBean();
+    long time = 0, allocated = 0;
+
+    for (int i = 0; i < s_warmup + s_iterations; i++) {
+      HashMap <Long, Long> bytes = allocation != null? getAllocatedBytes(allocation) : null;
+      long start = System.nanoTime();
+
+      MazeCreationAlgorithm alg = ctor.newInstance(size, size);
+      alg.setCycles(cycles);
+      alg.setComponents(components);
+      MazeGrid grid = alg.createMaze();
+      s_sink += grid.getWalls(size - 1, size - 1);
+
+      if (i >= s_warmup) {
+        time += System.nanoTime() - start;
+        if (allocation != null)
+          allocated += getAllocatedSince(allocation, bytes);
+      }
+    }
+
+    double ms = time / 1e6 / s_iterations;
+    System.out.printf(Locale.ROOT, "%-22s %6d %6d %6d %12.3f %12.3f %12s%n", name, size,
+        cycles, components, 1000 / ms, ms,
+        allocation == null? "n/a" : String.format(Locale.ROOT, "%.3f",
+                                                  allocated / 1048576.0 / s_iterations));
+  }
+
+  /**
+   * Obtiene el constructor de un algoritmo de generación a partir de su nombre.
+   *
+   * @param name
+   *          Nombre de la clase dentro de {@link es.ull.mazesolver.maze.algorithm}.
+   * @return Constructor que recibe el número de filas y de columnas.
+   */
+  private static Constructor <? extends MazeCreationAlgorithm> getConstructor (String name)
+      throws Exception {
+    return Class.forName(ALGORITHM_PACKAGE + name).asSubclass(MazeCreationAlgorithm.class)
+                .getConstructor(int.class, int.class);
+  }
+
+  /**
+   * Obtiene el objeto con el que medir la memoria reservada por cada hilo, si
+   * la máquina virtual lo permite.
+   *
+   * @return Objeto de gestión de hilos con la medida activada, o null si no se
+   *         puede medir la memoria reservada.
+   */
+  private static com.sun.management.ThreadMXBean getAllocationBean () {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean))
+      return null;
+
+    com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+    if (!allocation.isThreadAllocatedMemorySupported())
+      return null;
+
+    allocation.setThreadAllocatedMemoryEnabled(true);
+    return allocation;
+  }
+
+  /**
+   * Obtiene la memoria reservada hasta el momento por cada hilo vivo.
+   *
+   * @param allocation
+   *          Objeto de gestión de hilos con la medida activada.
+   * @return Bytes reservados por cada hilo, indexados por su identificador.
+   */
+  private static HashMap <Long, Long> getAllocatedBytes (
+      com.sun.management.ThreadMXBean allocation) {
+    long [] ids = allocation.getAllThreadIds();
+    long [] bytes = allocation.getThreadAllocatedBytes(ids);
+
+    HashMap <Long, Long> result = new HashMap <Long, Long>();
+    for (int i = 0; i < ids.length; i++) {
+      if (bytes[i] >= 0)
+        result.put(ids[i], bytes[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Obtiene la memoria reservada por todos los hilos desde una medida anterior.
+   * Los hilos creados después cuentan desde cero y los que han terminado
+   * entretanto no se pueden contar, aunque los del
+   * {@link java.util.concurrent.ForkJoinPool} común siguen vivos entre
+   * iteraciones.
+   *
+   * @param allocation
+   *          Objeto de gestión de hilos con la medida activada.
+   * @param before
+   *          Medida anterior, obtenida con {@link #getAllocatedBytes}.
+   * @return Bytes reservados entre ambas medidas.
+   */
+  private static long getAllocatedSince (com.sun.management.ThreadMXBean allocation,
+                                         HashMap <Long, Long> before) {
+    long total = 0;
+    for (Map.Entry <Long, Long> entry: getAllocatedBytes(allocation).entrySet()) {
+      Long previous = before.get(entry.getKey());
+      total += entry.getValue() - (previous != null? previous : 0);
+    }
+    return total;
+  }
+
+  /**
+   * Lee las opciones de la línea de comandos.
+   *
+   * @param args
+   *          Argumentos del programa.
+   */
+  private static void parseArguments (String [] args) {
+    for (String arg: args) {
+      int eq = arg.indexOf('=');
+      if (!arg.startsWith("--") || eq < 0)
+        throw new IllegalArgumentException(arg);
+
+      String key = arg.substring(2, eq), value = arg.substring(eq + 1);
+      switch (key) {
+        case "generators":
+          s_generators = value.split(",");
+          break;
+        case "sizes":
+          s_sizes = parseList(value);
+          break;
+        case "cycles":
+          s_cycles = parseList(value);
+          break;
+        case "components":
+          s_components = parseList(value);
+          break;
+        case "warmup":
+          s_warmup = Integer.parseInt(value);
+          break;
+        case "iterations":
+          s_iterations = Math.max(1, Integer.parseInt(value));
+          break;
+        case "max-time":
+          s_max_time = Double.parseDouble(value);
+          break;
+        case "run":
+          s_run = value;
+          break;
+        default:
+          throw new IllegalArgumentException(arg);
+      }
+    }
+  }
+
+  /**
+   * Convierte una lista de enteros separados por comas en un array.
+   */
+  private static int [] parseList (String value) {
+    String [] parts = value.split(",");
+    int [] list = new int [parts.length];
+    for (int i = 0; i < parts.length; i++)
+      list[i] = Integer.parseInt(parts[i].trim());
+    return list;
+  }
+}
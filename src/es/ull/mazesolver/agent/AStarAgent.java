@@ -30,28 +30,72 @@ import java.awt.Point;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.BitSet;
+import java.util.Collections;
 
-import es.ull.mazesolver.agent.util.Path;
+import es.ull.mazesolver.agent.util.IndexedHeap;
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.HeuristicAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
+import es.ull.mazesolver.maze.Maze;
+import es.ull.mazesolver.maze.MazeCell;
+import es.ull.mazesolver.maze.MazeGraph;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Agente que implementa el comportamiento del algoritmo A*.
+ * <br><br>
+ * La búsqueda trabaja sobre índices de celda ({@code fila * anchura +
+ * columna}, más un índice adicional para la salida) en lugar de sobre
+ * trayectorias completas: la lista abierta es un {@link IndexedHeap}, la
+ * cerrada un {@link BitSet} y para cada celda sólo se guarda su coste y su
+ * predecesora, de forma que el camino se reconstruye una única vez al final.
+ * <br><br>
+ * La planificación se hace primero sobre el grafo de pasillos del laberinto
+ * ({@link MazeGraph}), que tiene muchos menos nodos que celdas. Como ese grafo
+ * no tiene en cuenta al resto de agentes, si el camino obtenido pasa por una
+ * celda ocupada se repite la búsqueda celda a celda.
+ * <br><br>
+ * Cuando otro agente se interpone en el camino ya calculado, en lugar de
+ * descartarlo se busca un pequeño rodeo alrededor de la celda ocupada que
+ * vuelva a unirse al camino unos pasos más adelante. Si no existe, el agente
+ * espera unos turnos a que se libere el paso antes de planificar de nuevo
+ * desde cero.
  */
 public class AStarAgent extends HeuristicAgent {
   private static final long serialVersionUID = 4696525877860033142L;
   private static final double STEP_COST = 1.0;
 
+  // Límites de la reparación local del camino: número de pasos del camino en
+  // los que se busca dónde reincorporarse, número máximo de celdas a explorar
+  // y turnos de espera antes de planificar de nuevo
+  private static final int REPAIR_HORIZON = 64;
+  private static final int REPAIR_LIMIT = 512;
+  private static final int MAX_WAIT = 3;
+
+  private boolean m_replan_from_scratch;
+
   private transient Point m_exit;
 
   private transient int m_direction_index;
   private transient ArrayList <Direction> m_directions;
+  private transient int m_blocked_steps;
+
+  // Celda bloqueada para la que ya se ha buscado un rodeo sin encontrarlo, o
+  // -1. No se vuelve a buscar hasta que el agente se mueva.
+  private transient int m_failed_repair;
+
+  // Estructuras de la búsqueda, reutilizadas entre planificaciones mientras no
+  // cambie el tamaño del laberinto. Los valores de m_cost y m_parent de una
+  // celda sólo son válidos si m_stamp coincide con m_search, lo mismo que el
+  // de m_parent_edge en las búsquedas sobre el grafo de pasillos.
+  private transient IndexedHeap m_open;
+  private transient BitSet m_closed;
+  private transient double [] m_cost;
+  private transient int [] m_parent;
+  private transient int [] m_parent_edge;
+  private transient int [] m_stamp;
+  private transient int m_search;
 
   /**
    * Inicializa el agente A* con la distancia de Manhattan por defecto.
@@ -59,7 +103,7 @@ public class AStarAgent extends HeuristicAgent {
    * @param env
    *          Entorno en el que colocar al agente.
    */
-  public AStarAgent (Environment env) {
+  public AStarAgent (SimulationEngine env) {
     super(env);
   }
 
@@ -97,10 +141,10 @@ public class AStarAgent extends HeuristicAgent {
   /*
    * (non-Javadoc)
    *
-   * @see agent.Agent#setEnvironment(gui.environment.Environment)
+   * @see agent.Agent#setEnvironment(util.SimulationEngine)
    */
   @Override
-  public void setEnvironment (Environment env) {
+  public void setEnvironment (SimulationEngine env) {
     super.setEnvironment(env);
     resetMemory();
     m_exit = m_env.getMaze().getExit();
@@ -114,7 +158,10 @@ public class AStarAgent extends HeuristicAgent {
   @Override
   public Direction getNextMovement () {
     if (m_directions == null || (m_direction_index == m_directions.size() && !m_pos.equals(m_exit)))
-      calculatePath();
+      replan();
+    else if (m_direction_index != m_directions.size() &&
+             m_env.look(m_pos, m_directions.get(m_direction_index)) == MazeCell.Vision.AGENT)
+      pathBlocked();
 
     return m_directions != null && m_direction_index != m_directions.size()?
         m_directions.get(m_direction_index) : Direction.NONE;
@@ -128,8 +175,12 @@ public class AStarAgent extends HeuristicAgent {
   @Override
   public void doMovement (Direction dir) {
     super.doMovement(dir);
-    if (m_directions.get(m_direction_index) == dir && m_directions != null)
+    if (m_directions != null && m_direction_index < m_directions.size()
+        && m_directions.get(m_direction_index) == dir) {
       m_direction_index++;
+      m_blocked_steps = 0;
+    }
+    m_failed_repair = -1;
   }
 
   /*
@@ -141,6 +192,31 @@ public class AStarAgent extends HeuristicAgent {
   public void resetMemory () {
     m_directions = null;
     m_direction_index = 0;
+    m_blocked_steps = 0;
+    m_failed_repair = -1;
+  }
+
+  /**
+   * Indica si el agente vuelve a calcular el camino completo cada vez que otro
+   * agente se lo bloquea, en lugar de intentar repararlo localmente.
+   *
+   * @return Si se vuelve a planificar desde cero al encontrar un bloqueo.
+   */
+  public boolean getReplanFromScratch () {
+    return m_replan_from_scratch;
+  }
+
+  /**
+   * Cambia la forma en la que el agente reacciona cuando otro agente bloquea
+   * el camino calculado.
+   *
+   * @param from_scratch
+   *          {@code true} para volver a calcular el camino completo de
+   *          inmediato, o {@code false} para buscar primero un rodeo y esperar
+   *          a que se libere el paso.
+   */
+  public void setReplanFromScratch (boolean from_scratch) {
+    m_replan_from_scratch = from_scratch;
   }
 
   /*
@@ -163,143 +239,382 @@ public class AStarAgent extends HeuristicAgent {
     AStarAgent ag = new AStarAgent(m_env);
     ag.setAgentColor(getAgentColor());
     ag.setDistanceCalculator(m_dist);
+    ag.setReplanFromScratch(m_replan_from_scratch);
 
     return ag;
   }
 
   /**
-   * Clase comparadora de caminos que tiene en cuenta el coste real del camino
-   * y el coste estimado entre la última posición del camino y el punto en el
-   * que se encuentra la salida del laberinto.
+   * Calcula el camino hacia la salida desde cero, primero sobre el grafo de
+   * pasillos y si no es posible, celda a celda.
    */
-  private class HeuristicPathComparator implements Comparator <Path> {
-    /*
-     * (non-Javadoc)
-     *
-     * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
-     */
-    @Override
-    public int compare (Path o1, Path o2) {
-      double h1 = m_dist.distance(o1.getEndPoint(), m_exit);
-      double h2 = m_dist.distance(o2.getEndPoint(), m_exit);
-
-      // La ordenación se hace por coste acumulado (m_cost) + coste estimado
-      // (distancia a la salida)
-      return Double.compare(o1.getCost() + h1, o2.getCost() + h2);
-    }
+  private void replan () {
+    m_blocked_steps = 0;
+    if (!calculateGraphPath())
+      calculatePath();
   }
 
   /**
-   * Recalcula el camino hacia la salida del laberinto desde la posición actual.
+   * Reacciona ante un agente que ocupa la siguiente celda del camino. Se
+   * intenta reparar el camino con un rodeo y, si no es posible, se espera a
+   * que se libere hasta un número máximo de turnos.
+   * <br><br>
+   * Si ya se ha buscado un rodeo para la misma celda desde la posición actual
+   * sin éxito, no se vuelve a buscar mientras se espera. Esto es lo habitual
+   * en laberintos perfectos, donde nunca existe un rodeo.
    */
-  private void calculatePath () {
-    Path solution = null;
-
-    ArrayList <Path> closed = new ArrayList <Path>();
-    PriorityQueue <Path> open = new PriorityQueue <Path>(10, new HeuristicPathComparator());
+  private void pathBlocked () {
+    if (m_replan_from_scratch) {
+      replan();
+      return;
+    }
 
-    // Inicialmente la lista abierta contiene una trayectoria formada por sólo
-    // el nodo de inicio
-    open.add(new Path(m_pos));
+    Point blocked = m_directions.get(m_direction_index).movePoint(m_pos);
+    int cell = blocked.y * m_env.getMaze().getWidth() + blocked.x;
+    if (cell != m_failed_repair) {
+      if (repairPath())
+        return;
+      m_failed_repair = cell;
+    }
 
-    // Repetimos mientras hayan posibles trayectorias por recorrer
-    while (!open.isEmpty()) {
-      // Sacamos la trayectoria de la lista abierta
-      Path path = open.poll();
+    if (++m_blocked_steps > MAX_WAIT)
+      replan();
+  }
 
-      // Si la trayectoria finaliza en la salida, se trata de la trayectoria
-      // óptima: Salimos del bucle
-      if (path.getEndPoint().equals(m_exit)) {
-        solution = path;
+  /**
+   * Busca un camino desde la posición actual que evite la celda bloqueada y se
+   * reincorpore al camino calculado en alguno de sus siguientes pasos. La
+   * búsqueda se limita a los alrededores del agente, de forma que su coste no
+   * depende del tamaño del laberinto.
+   *
+   * @return Si se ha encontrado un rodeo y se ha sustituido en el camino.
+   */
+  private boolean repairPath () {
+    Maze maze = m_env.getMaze();
+    int width = maze.getWidth();
+
+    // Celdas por las que pasa el camino a partir de la posición actual
+    int horizon = Math.min(m_directions.size() - m_direction_index, REPAIR_HORIZON);
+    int [] plan = new int [horizon + 1];
+    int length = 0;
+    Point pos = new Point(m_pos);
+    plan[length++] = pos.y * width + pos.x;
+    for (int i = 0; i < horizon; i++) {
+      pos = m_directions.get(m_direction_index + i).movePoint(pos);
+      if (!maze.containsPoint(pos))
         break;
-      }
+      plan[length++] = pos.y * width + pos.x;
+    }
 
-      // Insertamos la trayectoria en la lista cerrada
-      insertPath(path, closed);
+    // Búsqueda en anchura acotada desde la posición actual
+    prepareSearch(width * maze.getHeight() + 1);
+    int [] queue = new int [REPAIR_LIMIT];
+    int head = 0, tail = 0;
+    m_stamp[plan[0]] = m_search;
+    m_cost[plan[0]] = 0.0;
+    m_parent[plan[0]] = -1;
+    queue[tail++] = plan[0];
+
+    while (head < tail) {
+      int node = queue[head++];
+      pos.setLocation(node % width, node / width);
 
-      // Expandimos la trayectoria actual para obtener los posibles pasos que
-      // se pueden dar desde la posición actual
-      Point pos = path.getEndPoint();
-      int n_steps = path.getLength();
       for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
         Direction dir = Direction.fromIndex(i);
+        Point next_pos = dir.movePoint(pos);
+        if (!maze.containsPoint(next_pos) || !m_env.movementAllowed(pos, dir))
+          continue;
+
+        int next = next_pos.y * width + next_pos.x;
+        if (m_stamp[next] != m_search) {
+          m_stamp[next] = m_search;
+          m_cost[next] = m_cost[node] + STEP_COST;
+          m_parent[next] = node;
+          if (tail < REPAIR_LIMIT)
+            queue[tail++] = next;
+        }
+      }
+    }
+
+    // Nos quedamos con el punto de reincorporación que menos alarga el camino,
+    // sin contar la propia celda bloqueada
+    int best = -1;
+    double best_extra = Double.POSITIVE_INFINITY;
+    for (int i = 2; i < length; i++) {
+      if (m_stamp[plan[i]] == m_search && m_cost[plan[i]] - i < best_extra) {
+        best_extra = m_cost[plan[i]] - i;
+        best = i;
+      }
+    }
+
+    if (best == -1)
+      return false;
+
+    ArrayList <Direction> directions = new ArrayList <Direction>();
+    for (int node = plan[best]; m_parent[node] != -1; node = m_parent[node])
+      directions.add(Direction.fromPoints(new Point(m_parent[node] % width, m_parent[node] / width),
+                                          new Point(node % width, node / width)));
+    Collections.reverse(directions);
+    directions.addAll(m_directions.subList(m_direction_index + best, m_directions.size()));
 
-        // Para añadir el paso a la trayectoria tiene que ser posible llevarlo
-        // a cabo en el entorno y además no puede ser el paso opuesto al que
-        // dio justo antes en la trayectoria (sabemos que así no se va a generar
-        // una mejor solución, porque repite posiciones)
-        if (m_env.movementAllowed(pos, dir)) {
-          Point n_pos = dir.movePoint(pos);
-          if (n_steps < 2 || !path.getPoint(n_steps - 2).equals(n_pos)) {
-            Path expanded_path = path.addStep(dir, STEP_COST);
-            Path discarded = insertPath(expanded_path, open);
-            if (discarded != null && discarded != expanded_path)
-              insertPath(discarded, closed);
-          }
+    m_directions = directions;
+    m_direction_index = 0;
+    m_blocked_steps = 0;
+    return true;
+  }
+
+  /**
+   * Calcula el camino hacia la salida del laberinto desde la posición actual
+   * buscando sobre el grafo de pasillos. Sólo tiene éxito si se llega a la
+   * salida y ningún otro agente bloquea el camino encontrado, en cuyo caso es
+   * también el camino óptimo teniendo en cuenta a los demás agentes.
+   *
+   * @return Si se ha podido calcular el camino de esta forma.
+   */
+  private boolean calculateGraphPath () {
+    Maze maze = m_env.getMaze();
+    if (!maze.containsPoint(m_pos))
+      return false;
+
+    MazeGraph graph = maze.getGraph();
+    int exit_node = graph.getExitNode();
+
+    int [] start_nodes = new int [2], start_costs = new int [2];
+    Direction [] start_dirs = new Direction [2];
+    int starts = graph.locate(m_pos.y, m_pos.x, start_nodes, start_costs, start_dirs);
+    if (starts == 0)
+      return false;
+
+    // Los nodos de partida son los extremos del pasillo en el que está el
+    // agente, o la propia celda si es un nodo. Su predecesor se codifica como
+    // -2 - i, siendo i el extremo correspondiente.
+    int width = maze.getWidth();
+    prepareSearch(width * maze.getHeight() + 1);
+    for (int i = 0; i < starts; i++) {
+      int node = start_nodes[i];
+      if (m_stamp[node] != m_search || start_costs[i] < m_cost[node]) {
+        m_stamp[node] = m_search;
+        m_cost[node] = start_costs[i];
+        m_parent[node] = -2 - i;
+
+        double h = graphHeuristic(graph, node, width);
+        m_open.insert(node, start_costs[i] + h, h);
+      }
+    }
+
+    // Para cada nodo alcanzado se guarda también la arista por la que se llegó
+    // en m_parent_edge
+    boolean found = false;
+
+    while (!m_open.isEmpty()) {
+      int node = m_open.poll();
+      if (node == exit_node) {
+        found = true;
+        break;
+      }
+
+      m_closed.set(node);
+      for (int e = graph.getFirstEdge(node); e < graph.getLastEdge(node); e++) {
+        int next = graph.getTarget(e);
+        if (m_closed.get(next))
+          continue;
+
+        double cost = m_cost[node] + graph.getCost(e) * STEP_COST;
+        if (m_stamp[next] != m_search || cost < m_cost[next]) {
+          m_stamp[next] = m_search;
+          m_cost[next] = cost;
+          m_parent[next] = node;
+          m_parent_edge[next] = e;
+
+          double next_h = graphHeuristic(graph, next, width);
+          m_open.insert(next, cost + next_h, next_h);
         }
       }
     }
 
-    // Si no encontramos una solución, al menos nos acercamos lo más posible a
+    if (!found)
+      return false;
+
+    // Recuperamos la secuencia de aristas y la expandimos a movimientos
+    ArrayList <Integer> edges = new ArrayList <Integer>();
+    int node = exit_node;
+    while (m_parent[node] >= 0) {
+      edges.add(m_parent_edge[node]);
+      node = m_parent[node];
+    }
+
+    ArrayList <Direction> directions = new ArrayList <Direction>();
+    int start = -2 - m_parent[node];
+    if (start_dirs[start] != Direction.NONE)
+      graph.follow(m_pos.y, m_pos.x, start_dirs[start], directions);
+
+    for (int i = edges.size() - 1; i >= 0; i--) {
+      graph.expandEdge(node, edges.get(i), directions);
+      node = graph.getTarget(edges.get(i));
+    }
+
+    // El grafo no conoce la posición de los demás agentes
+    Point pos = new Point(m_pos);
+    for (Direction dir: directions) {
+      if (!m_env.movementAllowed(pos, dir))
+        return false;
+      pos = dir.movePoint(pos);
+    }
+
+    m_directions = directions;
+    m_direction_index = 0;
+    return true;
+  }
+
+  /**
+   * Recalcula el camino hacia la salida del laberinto desde la posición actual
+   * buscando celda a celda, teniendo en cuenta al resto de agentes.
+   */
+  private void calculatePath () {
+    Maze maze = m_env.getMaze();
+    int width = maze.getWidth(), height = maze.getHeight();
+    int cells = width * height;
+    int exit_node = cells;
+
+    prepareSearch(cells + 1);
+
+    int start = m_pos.y * width + m_pos.x;
+    m_stamp[start] = m_search;
+    m_cost[start] = 0.0;
+    m_parent[start] = -1;
+    double start_h = m_dist.distance(m_pos.x, m_pos.y, m_exit.x, m_exit.y);
+    m_open.insert(start, start_h, start_h);
+
+    // Si no se encuentra una solución, al menos nos acercamos lo más posible a
     // la salida, por si más tarde se puede llegar (un agente se ha quitado de
     // la trayectoria hasta la salida)
-    if (solution == null) {
-      double dist = Double.MAX_VALUE;
-      for (Path p: closed) {
-        double p_dist = m_dist.distance(p.getEndPoint(), m_exit);
-        if (p_dist < dist) {
-          solution = p;
-          dist = p_dist;
+    int solution = -1, closest = start;
+    double closest_dist = Double.MAX_VALUE;
+
+    Point pos = new Point();
+    while (!m_open.isEmpty()) {
+      int node = m_open.poll();
+
+      // Si llegamos a la salida, se trata del camino óptimo
+      if (node == exit_node) {
+        solution = node;
+        break;
+      }
+
+      m_closed.set(node);
+      pos.setLocation(node % width, node / width);
+
+      double h = m_open.getSecondaryKey(node);
+      if (h < closest_dist) {
+        closest_dist = h;
+        closest = node;
+      }
+
+      // Expandimos la celda actual con los pasos posibles desde ella
+      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+        Direction dir = Direction.fromIndex(i);
+        if (!m_env.movementAllowed(pos, dir))
+          continue;
+
+        int nx = pos.x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+        int ny = pos.y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+
+        // Fuera del laberinto sólo tiene sentido llegar a la salida
+        int next;
+        if (nx >= 0 && ny >= 0 && nx < width && ny < height)
+          next = ny * width + nx;
+        else if (nx == m_exit.x && ny == m_exit.y)
+          next = exit_node;
+        else
+          continue;
+
+        if (m_closed.get(next))
+          continue;
+
+        double cost = m_cost[node] + STEP_COST;
+        if (m_stamp[next] != m_search || cost < m_cost[next]) {
+          m_stamp[next] = m_search;
+          m_cost[next] = cost;
+          m_parent[next] = node;
+
+          double next_h = m_dist.distance(nx, ny, m_exit.x, m_exit.y);
+          m_open.insert(next, cost + next_h, next_h);
         }
       }
     }
 
-    ArrayList <Point> path = solution.getPath();
-    m_directions = new ArrayList <Direction>(path.size() - 1);
-    for (int i = 1; i < path.size(); i++)
-      m_directions.add(Direction.fromPoints(path.get(i - 1), path.get(i)));
+    if (solution == -1)
+      solution = closest;
+
+    // Reconstruimos el camino siguiendo los predecesores desde el final
+    m_directions = new ArrayList <Direction>();
+    Point next = nodeToPoint(solution, width, exit_node);
+    for (int node = m_parent[solution]; node != -1; node = m_parent[node]) {
+      Point prev = nodeToPoint(node, width, exit_node);
+      m_directions.add(Direction.fromPoints(prev, next));
+      next = prev;
+    }
+    Collections.reverse(m_directions);
 
     m_direction_index = 0;
   }
 
   /**
-   * Buscamos en la lista una trayectoria que acabe en el mismo punto que la que
-   * está siendo procesada. Si la encuentra, dependiendo de los costes de ambas
-   * trayectorias sólo se deja en la lista la de menor coste. Si no la
-   * encuentra, simplemente añade la trayectoria a la lista.
+   * Prepara las estructuras de la búsqueda para una nueva planificación,
+   * creándolas de nuevo sólo si el número de nodos ha cambiado.
    *
-   * @param path
-   *          Trayectoria a añadir a la lista.
-   * @param list
-   *          Lista de trayectorias a la que se quiere añadir la trayectoria.
-   * @return La trayectoria eliminada de la lista, la trayectoria de entrada si
-   *         no fue insertada o null, dependiendo del caso.
+   * @param nodes
+   *          Número de nodos del grafo de búsqueda.
    */
-  private Path insertPath (Path path, Collection <Path> list) {
-    Path discarded = null;
-    boolean add_path = true;
-
-    Iterator <Path> iter = list.iterator();
-    while (iter.hasNext()) {
-      Path p = iter.next();
-      if (p.endsInTheSamePoint(path)) {
-        HeuristicPathComparator comp = new HeuristicPathComparator();
-        if (comp.compare(p, path) <= 0) {
-          discarded = path;
-          add_path = false;
-        }
-        else {
-          discarded = p;
-          iter.remove();
-        }
-        break;
-      }
+  private void prepareSearch (int nodes) {
+    if (m_open == null || m_open.capacity() != nodes) {
+      m_open = new IndexedHeap(nodes);
+      m_closed = new BitSet(nodes);
+      m_cost = new double [nodes];
+      m_parent = new int [nodes];
+      m_parent_edge = new int [nodes];
+      m_stamp = new int [nodes];
+      m_search = 0;
+    }
+    else {
+      m_open.clear();
+      m_closed.clear();
     }
 
-    if (add_path)
-      list.add(path);
+    m_search++;
+  }
 
-    return discarded;
+  /**
+   * Estima la distancia hasta la salida desde un nodo del grafo de pasillos.
+   *
+   * @param graph
+   *          Grafo de pasillos del laberinto.
+   * @param node
+   *          Nodo del grafo.
+   * @param width
+   *          Anchura del laberinto.
+   * @return Valor de la heurística para el nodo.
+   */
+  private double graphHeuristic (MazeGraph graph, int node, int width) {
+    int cell = graph.getNodeCell(node);
+    if (cell == -1)
+      return 0;
+    return m_dist.distance(cell % width, cell / width, m_exit.x, m_exit.y);
+  }
+
+  /**
+   * Obtiene la posición asociada a un nodo de la búsqueda.
+   *
+   * @param node
+   *          Índice del nodo.
+   * @param width
+   *          Anchura del laberinto.
+   * @param exit_node
+   *          Índice del nodo que representa la salida.
+   * @return Posición del nodo en el laberinto.
+   */
+  private Point nodeToPoint (int node, int width, int exit_node) {
+    return node == exit_node? new Point(m_exit) : new Point(node % width, node / width);
   }
 
   /**
@@ -36,9 +36,9 @@ import java.io.Serializable;
 
 import es.ull.mazesolver.gui.MainWindow;
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.MazeCell;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Clase que representa un agente abstracto que se encuentra en algún laberinto.
@@ -59,13 +59,19 @@ public abstract class Agent implements Cloneable, Serializable {
   /**
    * Entorno en el que reside el agente.
    */
-  protected transient Environment m_env;
+  protected transient SimulationEngine m_env;
 
   /**
    * Posición en la que se encuentra el agente.
    */
   protected transient Point m_pos;
 
+  /**
+   * Última percepción tomada por el agente, codificada como se indica en
+   * {@link Perception}.
+   */
+  private transient int m_perception;
+
   /**
    * Crea un nuevo agente en el entorno. Le asigna un ID único y lo coloca en el
    * punto (0,0).
@@ -73,7 +79,7 @@ public abstract class Agent implements Cloneable, Serializable {
    * @param env
    *          Entorno al que va a ser asignado dicho agente.
    */
-  protected Agent (Environment env) {
+  protected Agent (SimulationEngine env) {
     m_agent_id = s_agent_count++;
     m_name = getAlgorithmName() + " " + String.valueOf(m_agent_id);
     m_color = getAlgorithmColor();
@@ -132,7 +138,7 @@ public abstract class Agent implements Cloneable, Serializable {
    * @param env
    *          Entorno donde colocar el agente.
    */
-  public void setEnvironment (Environment env) {
+  public void setEnvironment (SimulationEngine env) {
     if (env != null)
       m_env = env;
     else
@@ -145,7 +151,7 @@ public abstract class Agent implements Cloneable, Serializable {
    *
    * @return Entorno en el que se encuentra el agente.
    */
-  public Environment getEnvironment () {
+  public SimulationEngine getEnvironment () {
     return m_env;
   }
 
@@ -160,6 +166,49 @@ public abstract class Agent implements Cloneable, Serializable {
     return m_env.look(m_pos, dir);
   }
 
+  /**
+   * Indica si una celda adyacente al agente ha sido visitada ya por el mismo.
+   * <br><br>
+   * La clase base no guarda memoria de las celdas visitadas, así que siempre
+   * devuelve false. Los agentes que sí la tengan deben sobrecargarlo.
+   *
+   * @param dir
+   *          Dirección en la que hay que mirar.
+   * @return Si la celda adyacente en esa dirección ha sido visitada o no.
+   */
+  public boolean hasVisited (Direction dir) {
+    return false;
+  }
+
+  /**
+   * Toma una percepción del entorno, mirando una sola vez en cada una de las 4
+   * direcciones. Se debe llamar al principio de
+   * {@link Agent#getNextMovement()} para que el resto de la decisión consulte
+   * la percepción en lugar del entorno.
+   *
+   * @return Percepción codificada como se indica en {@link Perception}.
+   */
+  public int perceive () {
+    int perception = 0;
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      perception = Perception.with(perception, dir, look(dir), hasVisited(dir));
+    }
+
+    m_perception = perception;
+    return perception;
+  }
+
+  /**
+   * Obtiene la última percepción tomada por el agente.
+   *
+   * @return Percepción codificada como se indica en {@link Perception}.
+   * @see Agent#perceive()
+   */
+  public int getPerception () {
+    return m_perception;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -247,7 +296,7 @@ public abstract class Agent implements Cloneable, Serializable {
    * @throws IOException
    *           Si no es posible leer el fichero.
    */
-  public static Agent loadFile (String filename, Environment env) throws IOException {
+  public static Agent loadFile (String filename, SimulationEngine env) throws IOException {
     try {
       Agent ag;
       FileInputStream file_in = new FileInputStream(filename);
@@ -0,0 +1,523 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file BidirectionalAgent.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.agent;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import es.ull.mazesolver.agent.util.BlackboardCommunication;
+import es.ull.mazesolver.agent.util.IndexedHeap;
+import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
+import es.ull.mazesolver.gui.configuration.HeuristicAgentConfigurationPanel;
+import es.ull.mazesolver.maze.Maze;
+import es.ull.mazesolver.maze.MazeCell;
+import es.ull.mazesolver.util.BlackboardManager;
+import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
+
+/**
+ * Agente que busca el camino más corto hasta la salida con una búsqueda
+ * bidireccional: una búsqueda A* hacia delante desde la posición del agente y
+ * una búsqueda en anchura hacia atrás desde la salida, que se detienen cuando
+ * sus fronteras se encuentran.
+ * <br><br>
+ * La búsqueda hacia atrás no depende de la posición de ningún agente, así que
+ * se comparte a través de una pizarra entre todos los agentes de este tipo del
+ * mismo entorno y se conserva entre planificaciones: cada búsqueda continúa la
+ * anterior desde donde se quedó, por lo que sólo se calcula una vez. Como la
+ * distancia a la salida de las celdas que ha alcanzado es exacta, la búsqueda
+ * hacia delante no necesita expandirlas.
+ * <br><br>
+ * La búsqueda hacia delante tiene en cuenta al resto de agentes, pero la parte
+ * del camino que procede de la búsqueda hacia atrás sólo considera las paredes.
+ */
+public class BidirectionalAgent extends HeuristicAgent implements BlackboardCommunication {
+  private static final long serialVersionUID = 5150917432716315270L;
+  private static final double STEP_COST = 1.0;
+
+  // Turnos que se espera a que otro agente libere el camino antes de
+  // planificar de nuevo
+  private static final int MAX_WAIT = 3;
+
+  private static String BLACKBOARD_CHANNEL = "Bidirectional Agents Channel";
+
+  /**
+   * Búsqueda en anchura desde la salida compartida entre agentes. Puede estar
+   * a medias: las celdas descubiertas tienen su distancia definitiva a la
+   * salida, y las que aún no lo han sido están a una distancia mayor que la de
+   * la primera celda de la cola.
+   */
+  private static class BackwardSearch {
+    /**
+     * Laberinto sobre el que se ha hecho la búsqueda y número de
+     * modificaciones que tenía entonces.
+     */
+    public Maze maze;
+    public int modifications;
+
+    /**
+     * Distancia de cada celda a la salida, o -1 si no se ha descubierto.
+     */
+    public int [] distance;
+
+    /**
+     * Índice de la dirección que hay que tomar desde cada celda descubierta
+     * para acercarse a la salida.
+     */
+    public byte [] next;
+
+    /**
+     * Cola de la búsqueda en anchura.
+     */
+    public int [] queue;
+    public int head, tail;
+  }
+
+  private transient BackwardSearch m_back;
+  private transient Point m_exit;
+
+  private transient int m_direction_index;
+  private transient ArrayList <Direction> m_directions;
+  private transient int m_blocked_steps;
+
+  // Estructuras de la búsqueda hacia delante, reutilizadas entre
+  // planificaciones mientras no cambie el tamaño del laberinto
+  private transient IndexedHeap m_open;
+  private transient BitSet m_closed;
+  private transient double [] m_cost;
+  private transient int [] m_parent;
+  private transient int [] m_stamp;
+  private transient int m_search;
+
+  /**
+   * Inicializa el agente con la distancia de Manhattan por defecto.
+   *
+   * @param env
+   *          Entorno en el que colocar al agente.
+   */
+  public BidirectionalAgent (SimulationEngine env) {
+    super(env);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getAlgorithmName()
+   */
+  @Override
+  public String getAlgorithmName () {
+    return "Bidirectional A*";
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getAlgorithmColor()
+   */
+  @Override
+  public Color getAlgorithmColor () {
+    return Color.LIGHT_GRAY;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#setPosition(java.awt.Point)
+   */
+  @Override
+  public void setPosition (Point pos) {
+    super.setPosition(pos);
+    resetMemory();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.HeuristicAgent#setEnvironment(es.ull.mazesolver.util.SimulationEngine)
+   */
+  @Override
+  public void setEnvironment (SimulationEngine env) {
+    super.setEnvironment(env);
+    resetMemory();
+    m_exit = m_env.getMaze().getExit();
+
+    BlackboardManager mgr = env.getBlackboardManager();
+    try {
+      setBlackboard(mgr.getBlackboard(BLACKBOARD_CHANNEL));
+    }
+    catch (IllegalArgumentException e) {
+      m_back = new BackwardSearch();
+      if (!mgr.changeBlackboard(BLACKBOARD_CHANNEL, m_back))
+        BLACKBOARD_CHANNEL = mgr.addBlackboard(m_back, BLACKBOARD_CHANNEL);
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getNextMovement()
+   */
+  @Override
+  public Direction getNextMovement () {
+    if (m_directions == null || (m_direction_index == m_directions.size() && !m_pos.equals(m_exit)))
+      calculatePath();
+    else if (m_direction_index != m_directions.size()) {
+      // Si una pared corta el camino se planifica de nuevo de inmediato, pero
+      // si es otro agente se le da tiempo a apartarse
+      MazeCell.Vision vision = m_env.look(m_pos, m_directions.get(m_direction_index));
+      if (vision == MazeCell.Vision.WALL ||
+          (vision == MazeCell.Vision.AGENT && ++m_blocked_steps > MAX_WAIT))
+        calculatePath();
+    }
+
+    return m_direction_index != m_directions.size()?
+        m_directions.get(m_direction_index) : Direction.NONE;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#doMovement(es.ull.mazesolver.util.Direction)
+   */
+  @Override
+  public void doMovement (Direction dir) {
+    super.doMovement(dir);
+    if (m_directions != null && m_direction_index < m_directions.size()
+        && m_directions.get(m_direction_index) == dir) {
+      m_direction_index++;
+      m_blocked_steps = 0;
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#resetMemory()
+   */
+  @Override
+  public void resetMemory () {
+    m_directions = null;
+    m_direction_index = 0;
+    m_blocked_steps = 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getConfigurationPanel()
+   */
+  @Override
+  public AgentConfigurationPanel getConfigurationPanel () {
+    return new HeuristicAgentConfigurationPanel(this);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#clone()
+   */
+  @Override
+  public Object clone () {
+    BidirectionalAgent ag = new BidirectionalAgent(m_env);
+    ag.setAgentColor(getAgentColor());
+    ag.setDistanceCalculator(m_dist);
+
+    return ag;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.util.BlackboardCommunication#getBlackboard()
+   */
+  @Override
+  public Object getBlackboard () {
+    return m_back;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * es.ull.mazesolver.agent.util.BlackboardCommunication#setBlackboard(java
+   * .lang.Object)
+   */
+  @Override
+  public void setBlackboard (Object blackboard) {
+    if (!(blackboard instanceof BackwardSearch))
+      throw new IllegalArgumentException("The blackboard is not the format expected");
+
+    m_back = (BackwardSearch) blackboard;
+  }
+
+  /**
+   * Recalcula el camino hacia la salida del laberinto desde la posición actual.
+   * Si no se encuentra ninguno, el agente se queda quieto y lo vuelve a
+   * intentar en el siguiente paso.
+   */
+  private void calculatePath () {
+    Maze maze = m_env.getMaze();
+    int width = maze.getWidth();
+    m_directions = new ArrayList <Direction>();
+    m_direction_index = 0;
+    m_blocked_steps = 0;
+
+    if (!maze.containsPoint(m_pos))
+      return;
+
+    prepareBackwardSearch(maze);
+    prepareSearch(width * maze.getHeight());
+
+    // Mejor camino encontrado hasta ahora: coste y celda de encuentro
+    double best = Double.POSITIVE_INFINITY;
+    int meeting = -1;
+
+    int start = m_pos.y * width + m_pos.x;
+    m_stamp[start] = m_search;
+    m_cost[start] = 0.0;
+    m_parent[start] = -1;
+
+    if (m_back.distance[start] != -1) {
+      best = m_back.distance[start];
+      meeting = start;
+    }
+    else
+      m_open.insert(start, lowerBound(start, 0.0), 0.0);
+
+    Point pos = new Point();
+    while (!m_open.isEmpty() && m_open.getPrimaryKey(m_open.peek()) < best) {
+      // Ambas búsquedas avanzan a la vez, aunque la de hacia atrás se detiene
+      // cuando ya ha alcanzado todo lo alcanzable
+      expandBackward(maze);
+
+      int node = m_open.poll();
+      m_closed.set(node);
+      if (m_back.distance[node] != -1) {
+        if (m_cost[node] + m_back.distance[node] < best) {
+          best = m_cost[node] + m_back.distance[node];
+          meeting = node;
+        }
+        continue;
+      }
+
+      pos.setLocation(node % width, node / width);
+
+      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+        Direction dir = Direction.fromIndex(i);
+        if (!m_env.movementAllowed(pos, dir))
+          continue;
+
+        int nx = pos.x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+        int ny = pos.y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+        if (!maze.containsPoint(new Point(nx, ny)))
+          continue;
+
+        int next = ny * width + nx;
+        if (m_closed.get(next))
+          continue;
+
+        double cost = m_cost[node] + STEP_COST;
+        if (m_stamp[next] != m_search || cost < m_cost[next]) {
+          m_stamp[next] = m_search;
+          m_cost[next] = cost;
+          m_parent[next] = node;
+
+          // Si la búsqueda hacia atrás ya ha llegado a esta celda, se conoce el
+          // resto del camino y no hace falta seguir expandiéndola
+          if (m_back.distance[next] != -1) {
+            m_open.remove(next);
+            if (cost + m_back.distance[next] < best) {
+              best = cost + m_back.distance[next];
+              meeting = next;
+            }
+          }
+          else {
+            double bound = lowerBound(next, cost);
+            if (bound != Double.POSITIVE_INFINITY)
+              m_open.insert(next, bound, m_dist.distance(nx, ny, m_exit.x, m_exit.y));
+          }
+        }
+      }
+    }
+
+    if (meeting == -1)
+      return;
+
+    // Primero la parte de la búsqueda hacia delante, desde el final
+    for (int node = meeting; m_parent[node] != -1; node = m_parent[node])
+      m_directions.add(Direction.fromPoints(new Point(m_parent[node] % width, m_parent[node] / width),
+                                            new Point(node % width, node / width)));
+    Collections.reverse(m_directions);
+
+    // Y después la de la búsqueda hacia atrás, hasta salir del laberinto
+    for (int node = meeting, steps = m_back.distance[meeting]; steps > 0; steps--) {
+      Direction dir = Direction.fromIndex(m_back.next[node]);
+      m_directions.add(dir);
+      if (steps > 1) {
+        Point next = dir.movePoint(new Point(node % width, node / width));
+        node = next.y * width + next.x;
+      }
+    }
+  }
+
+  /**
+   * Calcula una cota inferior del coste del camino hasta la salida pasando por
+   * una celda que la búsqueda hacia atrás aún no ha descubierto.
+   *
+   * @param cell
+   *          Índice de la celda.
+   * @param cost
+   *          Coste de llegar a la celda desde la posición del agente.
+   * @return Cota inferior del coste total, o infinito si no se puede llegar a
+   *         la salida desde la celda.
+   */
+  private double lowerBound (int cell, double cost) {
+    // Sin nada en la cola, la búsqueda hacia atrás ha terminado y la celda no
+    // está conectada con la salida
+    if (m_back.head == m_back.tail)
+      return Double.POSITIVE_INFINITY;
+
+    int width = m_env.getMaze().getWidth();
+    double h = m_dist.distance(cell % width, cell / width, m_exit.x, m_exit.y);
+    return cost + Math.max(h, m_back.distance[m_back.queue[m_back.head]] + 1);
+  }
+
+  /**
+   * Prepara la búsqueda hacia atrás compartida, empezándola de nuevo si no se
+   * ha hecho aún o si el laberinto ha cambiado desde entonces.
+   *
+   * @param maze
+   *          Laberinto en el que se mueve el agente.
+   */
+  private void prepareBackwardSearch (Maze maze) {
+    if (m_back.maze == maze && m_back.modifications == maze.getModificationCount())
+      return;
+
+    int cells = maze.getWidth() * maze.getHeight();
+    m_back.maze = maze;
+    m_back.modifications = maze.getModificationCount();
+    if (m_back.distance == null || m_back.distance.length != cells) {
+      m_back.distance = new int [cells];
+      m_back.next = new byte [cells];
+      m_back.queue = new int [cells];
+    }
+    Arrays.fill(m_back.distance, -1);
+    m_back.head = m_back.tail = 0;
+
+    // Las celdas de partida son las que están junto a la salida y no tienen
+    // pared en esa dirección
+    Point exit = maze.getExit();
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      Point cell = dir.movePoint(exit);
+      if (maze.containsPoint(cell) && !maze.hasWall(cell.y, cell.x, dir.getOpposite())) {
+        int index = cell.y * maze.getWidth() + cell.x;
+        m_back.distance[index] = 1;
+        m_back.next[index] = (byte) dir.getOpposite().ordinal();
+        m_back.queue[m_back.tail++] = index;
+      }
+    }
+  }
+
+  /**
+   * Expande la siguiente celda de la búsqueda hacia atrás, si queda alguna.
+   *
+   * @param maze
+   *          Laberinto en el que se mueve el agente.
+   */
+  private void expandBackward (Maze maze) {
+    if (m_back.head == m_back.tail)
+      return;
+
+    int width = maze.getWidth(), height = maze.getHeight();
+    int cell = m_back.queue[m_back.head++];
+    int x = cell % width, y = cell / width;
+
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      if (maze.hasWall(y, x, dir))
+        continue;
+
+      int nx = x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+      int ny = y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+      if (nx >= 0 && ny >= 0 && nx < width && ny < height
+          && m_back.distance[ny * width + nx] == -1
+          && !maze.hasWall(ny, nx, dir.getOpposite())) {
+        int next = ny * width + nx;
+        m_back.distance[next] = m_back.distance[cell] + 1;
+        m_back.next[next] = (byte) dir.getOpposite().ordinal();
+        m_back.queue[m_back.tail++] = next;
+      }
+    }
+  }
+
+  /**
+   * Prepara las estructuras de la búsqueda hacia delante para una nueva
+   * planificación, creándolas de nuevo sólo si el número de nodos ha cambiado.
+   *
+   * @param nodes
+   *          Número de nodos del grafo de búsqueda.
+   */
+  private void prepareSearch (int nodes) {
+    if (m_open == null || m_open.capacity() != nodes) {
+      m_open = new IndexedHeap(nodes);
+      m_closed = new BitSet(nodes);
+      m_cost = new double [nodes];
+      m_parent = new int [nodes];
+      m_stamp = new int [nodes];
+      m_search = 0;
+    }
+    else {
+      m_open.clear();
+      m_closed.clear();
+    }
+
+    m_search++;
+  }
+
+  /**
+   * Extrae la información del objeto a partir de una forma serializada del
+   * mismo.
+   *
+   * @param input
+   *          Flujo de entrada con la información del objeto.
+   * @throws ClassNotFoundException
+   *           Si se trata de un objeto de otra clase.
+   * @throws IOException
+   *           Si no se puede leer el flujo de entrada.
+   */
+  private void readObject (ObjectInputStream input) throws ClassNotFoundException, IOException {
+    input.defaultReadObject();
+    m_pos = new Point();
+  }
+}
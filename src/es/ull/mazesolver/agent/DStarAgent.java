@@ -27,69 +27,82 @@ package es.ull.mazesolver.agent;
 
 import java.awt.Color;
 import java.awt.Point;
-import java.util.ArrayList;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 import es.ull.mazesolver.agent.util.BlackboardCommunication;
+import es.ull.mazesolver.agent.util.IndexedHeap;
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.HeuristicAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.Maze;
 import es.ull.mazesolver.maze.MazeCell;
-import es.ull.mazesolver.maze.algorithm.EmptyMaze;
+import es.ull.mazesolver.maze.MazeGrid;
 import es.ull.mazesolver.util.BlackboardManager;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
- * Agente que implementa el algoritmo D* para calcular la ruta más corta hasta
- * la salida teniendo tan sólo conocimiento local del entorno.
+ * Agente que implementa el algoritmo D* Lite para calcular la ruta más corta
+ * hasta la salida teniendo tan sólo conocimiento local del entorno.
+ * <br><br>
+ * La búsqueda se hace desde la salida hacia el agente sobre el mapa que se
+ * conoce del laberinto, en el que se supone que no hay paredes en las zonas no
+ * visitadas. Cuando el agente descubre una pared, sólo se corrigen los costes
+ * afectados por ella. Todos los agentes D* de un mismo entorno comparten el
+ * mapa y los costes a través de una pizarra, de forma que lo que descubre uno
+ * de ellos lo aprovechan los demás.
  *
- * @see <a
- *      href="http://citeseerx.ist.psu.edu/viewdoc/summary?doi=10.1.1.15.3683">
- *      Optimal and Efficient Path Planning for Unknown and Dynamic Environments
- *      </a>
+ * @see <a href="http://idm-lab.org/bib/abstracts/papers/aaai02b.pdf">
+ *      D* Lite</a>
  */
 public class DStarAgent extends HeuristicAgent implements BlackboardCommunication {
   private static final long serialVersionUID = 1342168437798267323L;
+  private static final double STEP_COST = 1.0;
 
   private static String BLACKBOARD_CHANNEL = "D* Agents Channel";
 
   /**
    * Representa el estado del algoritmo, que es lo que es compartido entre
-   * agentes D* como pizarra.
-   */
-  /**
-   *
+   * agentes D* como pizarra. Los estados son las celdas del laberinto,
+   * identificadas por su índice ({@code fila * anchura + columna}).
    */
   private static class AlgorithmState {
     /**
      * No se trata del laberinto en el que el agente se mueve, sino la
-     * representación de lo que el agente conoce sobre el laberinto. Todas
-     * aquellas zonas que el agente no ha visitado supone que no contienen
+     * representación de lo que los agentes conocen sobre el laberinto. Todas
+     * aquellas zonas que no se han visitado se supone que no contienen
      * paredes.
      */
-    public Maze maze;
+    public MazeGrid known;
+
+    /**
+     * Dimensiones del laberinto.
+     */
+    public int width, height;
 
     /**
-     * Posición de la celda del laberinto más cercana a su salida.
+     * Celda del laberinto más cercana a su salida, que es el objetivo de la
+     * búsqueda.
      */
-    public Point exit;
+    public int goal;
 
     /**
-     * Representa la matriz de posiciones del laberinto con el estado del agente
-     * asociado a cada celda.
+     * Coste estimado hasta la salida desde cada celda (g) y su valor calculado
+     * a partir de sus vecinas (rhs).
      */
-    public ArrayList <ArrayList <State>> state_maze;
+    public double [] g, rhs;
 
     /**
-     * Lista "open" de estados del algoritmo.
+     * Lista abierta de estados inconsistentes (g != rhs).
      */
-    public PriorityQueue <State> open;
+    public IndexedHeap open;
 
     /**
-     * Valor de "k_old" del algoritmo.
+     * Corrección acumulada de las claves (k_m) y celda desde la que se calculó
+     * la ruta por última vez. Como todos los agentes comparten la búsqueda,
+     * cambiar de agente se trata igual que si el agente se hubiera movido.
      */
-    public double k_old;
+    public double k_m;
+    public int last;
   }
 
   private transient AlgorithmState m_st;
@@ -100,7 +113,7 @@ public class DStarAgent extends HeuristicAgent implements BlackboardCommunicatio
    * @param env
    *          Entorno en el que se va a colocar al agente.
    */
-  public DStarAgent (Environment env) {
+  public DStarAgent (SimulationEngine env) {
     super(env);
   }
 
@@ -127,48 +140,42 @@ public class DStarAgent extends HeuristicAgent implements BlackboardCommunicatio
   /*
    * (non-Javadoc)
    *
-   * @see agent.Agent#setEnvironment(gui.environment.Environment)
+   * @see agent.Agent#setEnvironment(util.SimulationEngine)
    */
   @Override
-  public void setEnvironment (Environment env) {
+  public void setEnvironment (SimulationEngine env) {
     super.setEnvironment(env);
-    resetMemory();
+    m_st = null;
 
+    Maze real_maze = env.getMaze();
     BlackboardManager mgr = env.getBlackboardManager();
     try {
       setBlackboard(mgr.getBlackboard(BLACKBOARD_CHANNEL));
     }
-    catch (Exception e) {
-      Maze real_maze = env.getMaze();
-
-      m_st = new AlgorithmState();
-      m_st.maze = new Maze(new EmptyMaze(real_maze.getHeight(), real_maze.getWidth()));
-
-      // Creamos la matriz de estados, donde cada celda representa un nodo en el
-      // grafo que manipula el algoritmo. Esto será lo que se comparta entre
-      // todos los agentes.
-      m_st.state_maze = new ArrayList <ArrayList <State>>(m_st.maze.getHeight());
-      for (int i = 0; i < m_st.maze.getHeight(); i++) {
-        m_st.state_maze.add(new ArrayList <State>(m_st.maze.getWidth()));
-        for (int j = 0; j < m_st.maze.getWidth(); j++)
-          m_st.state_maze.get(i).add(new State(new Point(j, i)));
-      }
+    catch (IllegalArgumentException e) {
+      m_st = null;
+    }
 
-      // La salida la colocaremos dentro del laberinto para que el agente pueda
-      // utilizarla como un estado más, luego en el método getNextMovement() se
-      // encarga de moverse al exterior si está en el punto al lado de la salida
-      m_st.exit = real_maze.getExit();
-      if (m_st.exit.x < 0)
-        m_st.exit.x++;
-      else if (m_st.exit.x == m_st.maze.getWidth())
-        m_st.exit.x--;
-      else if (m_st.exit.y < 0)
-        m_st.exit.y++;
-      else /* m_st.exit.y == m_st.maze.getHeight() */
-        m_st.exit.y--;
+    // La pizarra existente sólo se puede aprovechar si corresponde a un
+    // laberinto del mismo tamaño y con la salida en el mismo sitio. En ese
+    // caso se conserva lo que ya hayan aprendido los demás agentes
+    int goal = getGoal(real_maze);
+    if (m_st != null && m_st.width == real_maze.getWidth()
+        && m_st.height == real_maze.getHeight() && m_st.goal == goal)
+      return;
+
+    m_st = new AlgorithmState();
+    m_st.width = real_maze.getWidth();
+    m_st.height = real_maze.getHeight();
+    m_st.goal = goal;
+    m_st.known = new MazeGrid(m_st.height, m_st.width);
+    m_st.g = new double [m_st.width * m_st.height];
+    m_st.rhs = new double [m_st.width * m_st.height];
+    m_st.open = new IndexedHeap(m_st.width * m_st.height);
+    resetMemory();
 
+    if (!mgr.changeBlackboard(BLACKBOARD_CHANNEL, m_st))
       BLACKBOARD_CHANNEL = mgr.addBlackboard(m_st, BLACKBOARD_CHANNEL);
-    }
   }
 
   /*
@@ -185,54 +192,60 @@ public class DStarAgent extends HeuristicAgent implements BlackboardCommunicatio
         return dir;
     }
 
-    // Si no se sabe a dónde moverse, hay que calcular la ruta completa
-    if (m_st.state_maze.get(m_pos.y).get(m_pos.x).backpointer == null)
-      calculatePath();
+    if (!m_env.getMaze().containsPoint(m_pos))
+      return Direction.NONE;
 
-    // Obtenemos las celdas real y estimada para compararlas y actualizar el
-    // mapa consecuentemente
-    MazeCell known_cell = m_st.maze.get(m_pos.y, m_pos.x);
-    MazeCell real_cell = m_env.getMaze().get(m_pos.y, m_pos.x);
+    int start = m_pos.y * m_st.width + m_pos.x;
 
-    // Comprobamos en todas las direcciones que las paredes están colocadas en
-    // los mismos sitios
-    boolean changed = false;
+    // La posición de partida de la búsqueda ha cambiado desde la última vez,
+    // así que se corrigen las claves que se calculen a partir de ahora
+    if (m_st.last != start) {
+      m_st.k_m += heuristic(m_st.last, start);
+      m_st.last = start;
+    }
+
+    // Comparamos las paredes reales de la celda actual con las conocidas y
+    // actualizamos los costes de los estados afectados por las diferencias
     for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
       Direction dir = Direction.fromIndex(i);
+      boolean wall = m_env.getMaze().hasWall(m_pos.y, m_pos.x, dir);
+      if (wall == m_st.known.hasWall(m_pos.y, m_pos.x, dir))
+        continue;
+
+      int next = neighbour(start, dir);
+      setKnownWall(start, dir, wall);
+      if (next != -1)
+        setKnownWall(next, dir.getOpposite(), wall);
+
+      updateRhs(start);
+      if (next != -1)
+        updateRhs(next);
+    }
 
-      // En las direcciones en las que encontremos diferencias hacemos que la
-      // representación interna del agente se actualice
-      if (real_cell.hasWall(dir) != known_cell.hasWall(dir)) {
-        known_cell.toggleWall(dir);
+    computeShortestPath(start);
 
-        Point new_point = dir.movePoint(m_pos);
-        if (m_st.maze.containsPoint(new_point)) {
-          m_st.maze.get(new_point.y, new_point.x).toggleWall(dir.getOpposite());
-          modifyCost(m_st.state_maze.get(new_point.y).get(new_point.x));
-          changed = true;
-        }
+    // Si no se conoce ningún camino hasta la salida, es que no existe, ya que
+    // el mapa conocido siempre tiene menos paredes que el real
+    if (m_st.rhs[start] == Double.POSITIVE_INFINITY)
+      return Direction.NONE;
+
+    // Nos movemos hacia la vecina desde la que es más barato llegar a la salida
+    Direction best = Direction.NONE;
+    double best_cost = Double.POSITIVE_INFINITY;
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      int next = neighbour(start, dir);
+      if (next == -1)
+        continue;
+
+      double cost = cost(start, dir) + m_st.g[next];
+      if (cost < best_cost) {
+        best_cost = cost;
+        best = dir;
       }
     }
 
-    // Si la representación del laberinto se modifica, esto significa también
-    // que las distancias desde la posición actual hacia alguna de sus vecinas
-    // ha cambiado, así que hay que actualizar la ruta calculada por si ha
-    // dejado de ser factible.
-    if (changed)
-      calculatePartialPath(m_st.state_maze.get(m_pos.y).get(m_pos.x));
-
-    // printBackpointers();
-
-    Point next_pos = m_st.state_maze.get(m_pos.y).get(m_pos.x).backpointer.point;
-    Direction dir = Direction.fromPoints(m_pos, next_pos);
-    if (look(dir) != MazeCell.Vision.WALL)
-      return dir;
-    else {
-      modifyCost(m_st.state_maze.get(next_pos.y).get(next_pos.x));
-      calculatePartialPath(m_st.state_maze.get(m_pos.y).get(m_pos.x));
-      next_pos = m_st.state_maze.get(m_pos.y).get(m_pos.x).backpointer.point;
-      return Direction.fromPoints(m_pos, next_pos);
-    }
+    return best;
   }
 
   /*
@@ -243,17 +256,17 @@ public class DStarAgent extends HeuristicAgent implements BlackboardCommunicatio
   @Override
   public void resetMemory () {
     if (m_st != null) {
-      if (m_st.state_maze != null) {
-        for (ArrayList <State> l: m_st.state_maze)
-          for (State s: l)
-            s.reset();
-      }
-
-      for (int i = 0; i < m_st.maze.getHeight(); i++)
-        for (int j = 0; j < m_st.maze.getWidth(); j++)
-          m_st.maze.get(i, j).removeWalls();
-
-      m_st.open = new PriorityQueue <State>();
+      m_st.known.fill(0);
+      Arrays.fill(m_st.g, Double.POSITIVE_INFINITY);
+      Arrays.fill(m_st.rhs, Double.POSITIVE_INFINITY);
+      m_st.open.clear();
+
+      // La búsqueda empieza en la salida, y hasta que no se calcule la primera
+      // ruta se considera que es también la posición de partida
+      m_st.k_m = 0.0;
+      m_st.last = m_st.goal;
+      m_st.rhs[m_st.goal] = 0.0;
+      m_st.open.insert(m_st.goal, 0.0, 0.0);
     }
   }
 
@@ -288,7 +301,7 @@ public class DStarAgent extends HeuristicAgent implements BlackboardCommunicatio
    */
   @Override
   public Object getBlackboard () {
-    return m_st.state_maze;
+    return m_st;
   }
 
   /*
@@ -300,325 +313,202 @@ public class DStarAgent extends HeuristicAgent implements BlackboardCommunicatio
    */
   @Override
   public void setBlackboard (Object blackboard) {
-    try {
-      m_st = (AlgorithmState) blackboard;
-      if (blackboard == null)
-        throw new Exception();
-    }
-    catch (Exception e) {
+    if (!(blackboard instanceof AlgorithmState))
       throw new IllegalArgumentException("The blackboard is not the format expected");
-    }
-  }
 
-  /**
-   * Define los posibles valores con los que puede estar etiquetado un estado.
-   */
-  private static enum Tag {
-    NEW, OPEN, CLOSED
+    m_st = (AlgorithmState) blackboard;
   }
 
   /**
-   * Representa un estado dentro del algoritmo D*.
+   * Procesa los estados inconsistentes de la lista abierta hasta que el coste
+   * de la celda de partida es correcto. Termina siempre, aunque no exista
+   * camino hasta la salida, en cuyo caso el coste de la celda es infinito.
+   *
+   * @param start
+   *          Celda desde la que se quiere llegar a la salida.
    */
-  private class State implements Comparable <State> {
-    // No nos vale Double.MAX_VALUE porque Double.MAX_VALUE + 1.0 ==
-    // Double.MAX_VALUE
-    private static final double BIG_COST = 1000000.0;
-
-    public Point point;
-    public State backpointer; // b(X)
-    public Tag tag; // t(X)
-    public double path_cost; // h(X)
-    public double previous_cost; // p(X)
-    public double key_value; // k(X)
-
-    /**
-     * Crea un estado a partir de su posición en el laberinto. Se marca como
-     * "nuevo" y se le asignan costes de infinito para todas sus propiedades.
-     *
-     * @param pos
-     */
-    public State (Point pos) {
-      point = (Point) pos.clone();
-      reset();
-    }
-
-    /**
-     * Restaura el estado a sus valores iniciales.
-     */
-    public void reset () {
-      backpointer = null;
-      tag = Tag.NEW;
-      path_cost = previous_cost = key_value = BIG_COST;
-    }
-
-    /*
-     * (non-Javadoc)
-     *
-     * @see java.lang.Comparable#compareTo(java.lang.Object)
-     */
-    @Override
-    public int compareTo (State s) {
-      return Double.compare(key_value, s.key_value);
-    }
-
-    /**
-     * Analiza los vecinos que tiene en todas las direcciones y devuelve todos
-     * aquellos que existen. Es decir, las celdas adyacentes que están dentro
-     * del laberinto.
-     *
-     * @return Una lista con los vecinos del estado.
-     */
-    public ArrayList <State> getNeighbours () {
-      ArrayList <State> neighbours = new ArrayList <State>();
-
-      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
-        Direction dir = Direction.fromIndex(i);
-        Point new_pos = dir.movePoint(point);
-        if (m_st.maze.containsPoint(new_pos))
-          neighbours.add(m_st.state_maze.get(new_pos.y).get(new_pos.x));
+  private void computeShortestPath (int start) {
+    IndexedHeap open = m_st.open;
+    double [] g = m_st.g, rhs = m_st.rhs;
+
+    while (!open.isEmpty()) {
+      int u = open.peek();
+      double k1_old = open.getPrimaryKey(u), k2_old = open.getSecondaryKey(u);
+
+      double start_k2 = Math.min(g[start], rhs[start]);
+      double start_k1 = start_k2 + m_st.k_m;
+      if (!lessKey(k1_old, k2_old, start_k1, start_k2) && rhs[start] <= g[start])
+        break;
+
+      double k2_new = Math.min(g[u], rhs[u]);
+      double k1_new = k2_new + heuristic(start, u) + m_st.k_m;
+
+      if (lessKey(k1_old, k2_old, k1_new, k2_new))
+        open.insert(u, k1_new, k2_new);
+      else if (g[u] > rhs[u]) {
+        // El estado estaba infravalorado: se fija su coste y se propaga
+        g[u] = rhs[u];
+        open.remove(u);
+        for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+          Direction dir = Direction.fromIndex(i);
+          int s = neighbour(u, dir);
+          if (s != -1 && s != m_st.goal) {
+            rhs[s] = Math.min(rhs[s], cost(s, dir.getOpposite()) + g[u]);
+            updateVertex(s, start);
+          }
+        }
+      }
+      else {
+        // El estado estaba sobrevalorado: se invalida y se recalculan los que
+        // dependían de él
+        g[u] = Double.POSITIVE_INFINITY;
+        updateRhs(u);
+        for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+          int s = neighbour(u, Direction.fromIndex(i));
+          if (s != -1)
+            updateRhs(s);
+        }
+        updateVertex(u, start);
       }
-
-      return neighbours;
     }
   }
 
   /**
-   * Recalcula la ruta hasta la salida desde el punto actual. Utiliza el
-   * conocimiento que se tiene actualmente sobre el laberinto para hacerlo. Este
-   * método crea desde cero la estructura de estados, por lo que se debe
-   * utilizar sólo una vez por entorno.
-   */
-  private void calculatePath () {
-    State initial = m_st.state_maze.get(m_pos.y).get(m_pos.x);
-    State goal = m_st.state_maze.get(m_st.exit.y).get(m_st.exit.x);
-
-    goal.path_cost = 0.0;
-    insert(goal);
-
-    double value = 0.0;
-    while (initial.tag != Tag.CLOSED && value != -1)
-      value = processState();
-  }
-
-  /**
-   * Una vez se encuentra un obstáculo nuevo y se llama a
-   * {@link DStarAgent#modifyCost}, se debe llamar a este método para que
-   * recalcule el camino hacia la salida de una forma mucho más eficiente que
-   * utilizar {@link DStarAgent#calculatePath}. Sólo recalcula aquella parte del
-   * camino previamente calculado que ha sido invalidada tras la modificación.
-   */
-  private void calculatePartialPath (State x) {
-    // FIXME Cuando no hay camino hasta la salida, nunca acaba el bucle porque
-    // el coste de cada posición se aumenta en cada iteración y nunca se saca
-    // de OPEN.
-
-    // Cuando devuelve kmin > x.path_cost lo que hay en OPEN suelen ser los
-    // vecinos de x, que hay que actualizar o eso parece...
-
-    // Modificación del algoritmo original: Seguir procesando el estado hasta
-    // que no haya nada en la lista abierta (todos los caminos son óptimos)
-    while (!m_st.open.isEmpty())
-      processState();
-  }
-
-  /**
-   * Computa los costes del nodo actual hacia el destino cuando se ejecuta
-   * repetidamente hasta que el nodo actual se etiqueta como "cerrado".
+   * Recalcula el valor rhs de un estado a partir de sus vecinos y lo coloca o
+   * lo quita de la lista abierta según sea necesario. La clave se calcula más
+   * tarde, al procesarlo, por lo que aquí sólo se usa una cota inferior.
    *
-   * @return El valor de Kmin. Devolverá -1 si no hay ninguna solución factible.
+   * @param u
+   *          Celda a actualizar.
    */
-  private double processState () {
-    State x = minState();
-    if (x == null)
-      return -1;
-
-    m_st.k_old = getKmin();
-    delete(x);
-
-    ArrayList <State> neighbours = x.getNeighbours();
-
-    // Reducimos el coste del nodo actual si se puede desde alguno de sus
-    // vecinos, pero sólo si el camino actual a los vecinos es óptimo
-    for (State y: neighbours) {
-      if (y.tag == Tag.CLOSED && y.path_cost <= m_st.k_old
-          && x.path_cost > y.path_cost + distance(y, x)) {
-        x.backpointer = y;
-        x.path_cost = y.path_cost + distance(y, x);
-      }
-    }
-
-    for (State y: neighbours) {
-      // Propagación del coste a los estados no visitados
-      if (y.tag == Tag.NEW) {
-        y.backpointer = x;
-        y.path_cost = x.path_cost + distance(x, y);
-        y.previous_cost = y.path_cost;
-        insert(y);
-      }
-      else {
-        // Propagación de costes a través de los backpointers
-        if (y.backpointer == x && y.path_cost != x.path_cost + distance(x, y)) {
-          if (y.tag == Tag.OPEN) {
-            if (y.path_cost < y.previous_cost)
-              y.previous_cost = y.path_cost;
-
-            y.path_cost = x.path_cost + distance(x, y);
-          }
-          else {
-            y.path_cost = x.path_cost + distance(x, y);
-            y.previous_cost = y.path_cost;
-          }
-          insert(y);
-        }
-        else {
-          // Mejora los costes de los vecinos si puede
-          if (y.backpointer != x && y.path_cost > x.path_cost + distance(x, y)) {
-            if (x.previous_cost >= x.path_cost) {
-              y.backpointer = x;
-              y.path_cost = x.path_cost + distance(x, y);
-
-              if (y.tag == Tag.CLOSED)
-                y.previous_cost = y.path_cost;
-
-              insert(y);
-            }
-            else {
-              x.previous_cost = x.path_cost;
-              insert(x);
-            }
-          }
-          else {
-            if (y.backpointer != x && x.path_cost > y.path_cost + distance(y, x)
-                && y.tag == Tag.CLOSED && y.path_cost > m_st.k_old) {
-              y.previous_cost = y.path_cost;
-              insert(y);
-            }
-          }
-        }
+  private void updateRhs (int u) {
+    if (u != m_st.goal) {
+      double best = Double.POSITIVE_INFINITY;
+      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+        Direction dir = Direction.fromIndex(i);
+        int s = neighbour(u, dir);
+        if (s != -1)
+          best = Math.min(best, cost(u, dir) + m_st.g[s]);
       }
+      m_st.rhs[u] = best;
     }
 
-    return getKmin();
+    updateVertex(u, m_st.last);
   }
 
   /**
-   * Notifica al algoritmo que se ha detectado una incoherencia entre las
-   * distancias que se utilizaron al procesar el nodo X y lo que han medido los
-   * sensores, de manera que lo introduce en la lista abierta para volver a ser
-   * tratado.
+   * Coloca un estado en la lista abierta si es inconsistente, o lo saca de
+   * ella si no lo es.
    *
-   * @param x
-   *          Estado que ha detectado incoherencia entre su representación del
-   *          entorno y lo detectado por sus sensores.
-   * @return El valor de Kmin.
+   * @param u
+   *          Celda a actualizar.
+   * @param start
+   *          Celda de partida de la búsqueda.
    */
-  private double modifyCost (State x) {
-    if (x.tag == Tag.CLOSED) {
-      x.previous_cost = x.path_cost;
-      insert(x);
+  private void updateVertex (int u, int start) {
+    double [] g = m_st.g, rhs = m_st.rhs;
+    if (g[u] != rhs[u]) {
+      double k2 = Math.min(g[u], rhs[u]);
+      m_st.open.insert(u, k2 + heuristic(start, u) + m_st.k_m, k2);
     }
-    return getKmin();
+    else
+      m_st.open.remove(u);
   }
 
   /**
-   * Obtiene el estado "open" con valor menor de k.
+   * Compara 2 claves de la lista abierta.
    *
-   * @return El estado de la lista abierta con menor valor de k.
+   * @return Si la clave (a1, a2) es estrictamente menor que (b1, b2).
    */
-  private State minState () {
-    return m_st.open.isEmpty()? null : m_st.open.peek();
+  private static boolean lessKey (double a1, double a2, double b1, double b2) {
+    return a1 < b1 || (a1 == b1 && a2 < b2);
   }
 
   /**
-   * Obtiene el valor de k más bajo que tiene un estado en "open".
+   * Estimación de la distancia entre 2 celdas según el algoritmo de medición
+   * de distancias del agente.
    *
-   * @return El valor de k más pequeño que hay en la lista abierta.
+   * @param a
+   *          Primera celda.
+   * @param b
+   *          Segunda celda.
+   * @return Distancia estimada.
    */
-  private double getKmin () {
-    State min = minState();
-    return min != null? min.key_value : -1.0;
+  private double heuristic (int a, int b) {
+    int width = m_st.width;
+    return m_dist.distance(a % width, a / width, b % width, b / width);
   }
 
   /**
-   * Se elimina el estado indicado de la lista abierta y se modifica su etiqueta
-   * por "cerrado".
+   * Obtiene la celda adyacente a otra en una dirección.
    *
-   * @param s
-   *          Estado que eliminar.
+   * @param cell
+   *          Índice de la celda.
+   * @param dir
+   *          Dirección.
+   * @return Índice de la celda adyacente o -1 si queda fuera del laberinto.
    */
-  private void delete (State s) {
-    m_st.open.remove(s);
-    s.tag = Tag.CLOSED;
+  private int neighbour (int cell, Direction dir) {
+    int width = m_st.width;
+    int x = cell % width + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+    int y = cell / width + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+    return x >= 0 && y >= 0 && x < width && y < m_st.height? y * width + x : -1;
   }
 
   /**
-   * Se inserta el estado en la lista abierta, modificando su etiqueta y
-   * calculando el valor de k que tiene asociado a partir de h y p.
+   * Calcula el coste de moverse desde una celda a su vecina según lo que se
+   * conoce del laberinto.
    *
-   * @param s
-   *          Estado que insertar.
+   * @param cell
+   *          Índice de la celda.
+   * @param dir
+   *          Dirección del movimiento.
+   * @return Coste del paso, que es infinito si se sabe que hay una pared.
    */
-  private void insert (State s) {
-    // Reposicionamiento del elemento si ya estaba, en lugar de inserción
-    if (s.tag == Tag.OPEN)
-      m_st.open.remove(s);
-
-    s.key_value = Math.min(s.path_cost, s.previous_cost);
-    s.tag = Tag.OPEN;
-    m_st.open.add(s);
+  private double cost (int cell, Direction dir) {
+    if (m_st.known.hasWall(cell / m_st.width, cell % m_st.width, dir))
+      return Double.POSITIVE_INFINITY;
+    return STEP_COST;
   }
 
   /**
-   * Calcula la distancia entre dos estados vecinos teniendo en cuenta que si
-   * hay una pared que los separa, la distancia es infinita.
+   * Modifica una pared del mapa conocido del laberinto.
    *
-   * @param x
-   *          Estado X.
-   * @param y
-   *          Estado Y.
-   * @return El valor de la distancia entre ambos estados.
+   * @param cell
+   *          Índice de la celda.
+   * @param dir
+   *          Lado de la celda.
+   * @param wall
+   *          Si hay pared o no.
    */
-  private double distance (State x, State y) {
-    Point pos = x.point;
-    if (m_st.maze.get(pos.y, pos.x).hasWall(Direction.fromPoints(pos, y.point)))
-      return State.BIG_COST;
+  private void setKnownWall (int cell, Direction dir, boolean wall) {
+    int row = cell / m_st.width, column = cell % m_st.width;
+    if (wall)
+      m_st.known.setWall(row, column, dir);
     else
-      return m_dist.distance(pos, y.point);
+      m_st.known.unsetWall(row, column, dir);
   }
 
   /**
-   * Imprime por consola la matriz de movimientos actual del agente.
+   * Obtiene la celda del laberinto más cercana a la salida, que es la que
+   * utiliza el algoritmo como objetivo. Luego {@link #getNextMovement()} se
+   * encarga de moverse al exterior cuando se está en ella.
+   *
+   * @param maze
+   *          Laberinto.
+   * @return Índice de la celda junto a la salida.
    */
-  @SuppressWarnings ("unused")
-  private void printBackpointers () {
-    for (int i = 0; i < m_st.maze.getHeight(); i++) {
-      for (int j = 0; j < m_st.maze.getWidth(); j++) {
-        State s = m_st.state_maze.get(i).get(j);
-        if (s.backpointer == null)
-          System.out.print("·");
-        else {
-          switch (Direction.fromPoints(s.point, s.backpointer.point)) {
-            case UP:
-              System.out.print("\u2191");
-              break;
-            case DOWN:
-              System.out.print("\u2193");
-              break;
-            case LEFT:
-              System.out.print("\u2190");
-              break;
-            case RIGHT:
-              System.out.print("\u2192");
-              break;
-            default:
-              System.out.print("·");
-              break;
-          }
-        }
-      }
-      System.out.println();
-    }
-    System.out.println();
+  private static int getGoal (Maze maze) {
+    Point exit = new Point(maze.getExit());
+    if (exit.x < 0)
+      exit.x++;
+    else if (exit.x == maze.getWidth())
+      exit.x--;
+    else if (exit.y < 0)
+      exit.y++;
+    else /* exit.y == maze.getHeight() */
+      exit.y--;
+
+    return exit.y * maze.getWidth() + exit.x;
   }
 }
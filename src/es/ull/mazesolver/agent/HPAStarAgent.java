@@ -0,0 +1,458 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file HPAStarAgent.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.agent;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import es.ull.mazesolver.agent.util.IndexedHeap;
+import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
+import es.ull.mazesolver.gui.configuration.HeuristicAgentConfigurationPanel;
+import es.ull.mazesolver.maze.Maze;
+import es.ull.mazesolver.maze.MazeCell;
+import es.ull.mazesolver.maze.MazeClusters;
+import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
+
+/**
+ * Agente que implementa el algoritmo HPA* (<i>Hierarchical Pathfinding A*</i>),
+ * pensado para laberintos muy grandes.
+ * <br><br>
+ * En lugar de buscar celda a celda, el agente aplica A* sobre un grafo
+ * abstracto cuyos nodos son las entradas de los clústeres en los que se divide
+ * el laberinto ({@link MazeClusters}) y cuyas aristas son los pasos entre
+ * clústeres vecinos y las distancias precalculadas dentro de cada clúster. El
+ * resultado es una lista de entradas por las que pasar, y el camino entre cada
+ * par de ellas sólo se calcula cuando el agente llega a la primera.
+ * <br><br>
+ * Al igual que la división en clústeres, el plan no tiene en cuenta al resto de
+ * agentes. Si una parte del camino deja de existir porque han cambiado las
+ * paredes del laberinto, se vuelve a planificar desde la posición actual.
+ */
+public class HPAStarAgent extends HeuristicAgent {
+  private static final long serialVersionUID = -2383064577425939166L;
+
+  private transient Point m_exit;
+
+  // Entradas por las que pasa el camino (índices de celda) y movimientos del
+  // tramo que se está recorriendo
+  private transient int [] m_waypoints;
+  private transient int m_waypoint_index;
+  private transient ArrayList <Direction> m_directions;
+  private transient int m_direction_index;
+
+  // Estructuras de la búsqueda abstracta. Cada entrada se identifica por su
+  // clúster y su posición dentro de él, y los valores de m_cost y m_parent sólo
+  // son válidos si m_stamp coincide con m_search.
+  private transient IndexedHeap m_open;
+  private transient BitSet m_closed;
+  private transient double [] m_cost;
+  private transient int [] m_parent;
+  private transient int [] m_stamp;
+  private transient int m_search;
+
+  // Memoria de trabajo de las búsquedas dentro de un clúster, reutilizada
+  // entre planificaciones
+  private transient MazeClusters.SearchBuffer m_cluster_buffer;
+  private transient int [] m_entrance_distances;
+
+  /**
+   * Inicializa el agente HPA* con la distancia de Manhattan por defecto.
+   *
+   * @param env
+   *          Entorno en el que colocar al agente.
+   */
+  public HPAStarAgent (SimulationEngine env) {
+    super(env);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getAlgorithmName()
+   */
+  @Override
+  public String getAlgorithmName () {
+    return "HPA*";
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getAlgorithmColor()
+   */
+  @Override
+  public Color getAlgorithmColor () {
+    return Color.PINK;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#setPosition(java.awt.Point)
+   */
+  @Override
+  public void setPosition (Point pos) {
+    super.setPosition(pos);
+    resetMemory();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.HeuristicAgent#setEnvironment(es.ull.mazesolver.util.SimulationEngine)
+   */
+  @Override
+  public void setEnvironment (SimulationEngine env) {
+    super.setEnvironment(env);
+    resetMemory();
+    m_exit = m_env.getMaze().getExit();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getNextMovement()
+   */
+  @Override
+  public Direction getNextMovement () {
+    if (!m_env.getMaze().containsPoint(m_pos))
+      return Direction.NONE;
+
+    if (m_waypoints == null)
+      calculatePath();
+
+    if (m_direction_index == m_directions.size() && !refineNextSegment()) {
+      // El plan ya no es válido, así que se intenta una vez más desde aquí
+      calculatePath();
+      if (!refineNextSegment())
+        return Direction.NONE;
+    }
+
+    // Si han puesto una pared en el tramo que se está recorriendo, el plan ya
+    // no sirve y hay que calcularlo de nuevo desde aquí
+    Direction next = m_directions.get(m_direction_index);
+    if (m_env.look(m_pos, next) == MazeCell.Vision.WALL) {
+      calculatePath();
+      if (!refineNextSegment())
+        return Direction.NONE;
+      next = m_directions.get(m_direction_index);
+    }
+
+    return next;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#doMovement(es.ull.mazesolver.util.Direction)
+   */
+  @Override
+  public void doMovement (Direction dir) {
+    super.doMovement(dir);
+    if (m_directions != null && m_direction_index < m_directions.size()
+        && m_directions.get(m_direction_index) == dir)
+      m_direction_index++;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#resetMemory()
+   */
+  @Override
+  public void resetMemory () {
+    m_waypoints = null;
+    m_waypoint_index = 0;
+    m_directions = new ArrayList <Direction>();
+    m_direction_index = 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#getConfigurationPanel()
+   */
+  @Override
+  public AgentConfigurationPanel getConfigurationPanel () {
+    return new HeuristicAgentConfigurationPanel(this);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.agent.Agent#clone()
+   */
+  @Override
+  public Object clone () {
+    HPAStarAgent ag = new HPAStarAgent(m_env);
+    ag.setAgentColor(getAgentColor());
+    ag.setDistanceCalculator(m_dist);
+
+    return ag;
+  }
+
+  /**
+   * Calcula la lista de entradas de clúster por las que pasa el camino más
+   * corto desde la posición actual hasta la salida. Si no existe camino, la
+   * lista queda vacía.
+   */
+  private void calculatePath () {
+    Maze maze = m_env.getMaze();
+    MazeClusters clusters = maze.getClusters();
+    int width = maze.getWidth();
+    int start_node = clusters.getClusterCount() * MazeClusters.MAX_ENTRANCES;
+    int exit_node = start_node + 1;
+
+    prepareSearch(exit_node + 1);
+    m_stamp[start_node] = m_search;
+    m_cost[start_node] = 0.0;
+    m_parent[start_node] = -1;
+    double start_h = m_dist.distance(m_pos.x, m_pos.y, m_exit.x, m_exit.y);
+    m_open.insert(start_node, start_h, start_h);
+
+    boolean found = false;
+    while (!m_open.isEmpty()) {
+      int node = m_open.poll();
+      if (node == exit_node) {
+        found = true;
+        break;
+      }
+
+      m_closed.set(node);
+
+      // El nodo inicial sólo se conecta con las entradas de su clúster
+      if (node == start_node) {
+        int cluster = clusters.getCluster(m_pos.y, m_pos.x);
+        MazeClusters.SearchBuffer buffer = getClusterBuffer();
+        int count = clusters.getEntranceDistances(m_pos.y, m_pos.x, m_entrance_distances, buffer);
+        for (int i = 0; i < count; i++)
+          if (m_entrance_distances[i] != -1)
+            relax(clusters, node, cluster * MazeClusters.MAX_ENTRANCES + i,
+                  m_entrance_distances[i], exit_node);
+        continue;
+      }
+
+      int cluster = node / MazeClusters.MAX_ENTRANCES, index = node % MazeClusters.MAX_ENTRANCES;
+      int [] entrances = clusters.getEntrances(cluster);
+      int cell = entrances[index];
+      int x = cell % width, y = cell / width;
+
+      // Aristas dentro del clúster
+      for (int i = 0; i < entrances.length; i++) {
+        int distance = clusters.getDistance(cluster, index, i);
+        if (i != index && distance != -1)
+          relax(clusters, node, cluster * MazeClusters.MAX_ENTRANCES + i, distance, exit_node);
+      }
+
+      // Aristas hacia los clústeres vecinos y hacia la salida
+      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+        Direction dir = Direction.fromIndex(i);
+        if (!clusters.isOpen(y, x, dir))
+          continue;
+
+        int nx = x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+        int ny = y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+        if (nx == m_exit.x && ny == m_exit.y)
+          relax(clusters, node, exit_node, 1, exit_node);
+        else {
+          int next_cluster = clusters.getCluster(ny, nx);
+          if (next_cluster != cluster) {
+            int next_index = clusters.getEntranceIndex(next_cluster, ny * width + nx);
+            if (next_index >= 0)
+              relax(clusters, node, next_cluster * MazeClusters.MAX_ENTRANCES + next_index, 1,
+                    exit_node);
+          }
+        }
+      }
+    }
+
+    // Reconstruimos la lista de entradas desde la salida hacia atrás
+    int length = 0;
+    if (found)
+      for (int node = m_parent[exit_node]; node != start_node; node = m_parent[node])
+        length++;
+
+    m_waypoints = new int [length];
+    if (found) {
+      int i = length;
+      for (int node = m_parent[exit_node]; node != start_node; node = m_parent[node])
+        m_waypoints[--i] = clusters.getEntrances(node / MazeClusters.MAX_ENTRANCES)
+                                   [node % MazeClusters.MAX_ENTRANCES];
+    }
+
+    // La salida se alcanza tras la última entrada, así que se marca como
+    // objetivo final siempre que haya camino
+    m_waypoint_index = found? 0 : length + 1;
+    m_directions.clear();
+    m_direction_index = 0;
+  }
+
+  /**
+   * Actualiza el coste de llegar a un nodo del grafo abstracto.
+   *
+   * @param clusters
+   *          División en clústeres del laberinto.
+   * @param node
+   *          Nodo desde el que se llega.
+   * @param next
+   *          Nodo al que se llega.
+   * @param distance
+   *          Número de pasos entre ambos nodos.
+   * @param exit_node
+   *          Nodo que representa la salida.
+   */
+  private void relax (MazeClusters clusters, int node, int next, int distance, int exit_node) {
+    if (m_closed.get(next))
+      return;
+
+    double cost = m_cost[node] + distance;
+    if (m_stamp[next] != m_search || cost < m_cost[next]) {
+      m_stamp[next] = m_search;
+      m_cost[next] = cost;
+      m_parent[next] = node;
+
+      double h;
+      if (next == exit_node)
+        h = 0.0;
+      else {
+        int cell = clusters.getEntrances(next / MazeClusters.MAX_ENTRANCES)
+                           [next % MazeClusters.MAX_ENTRANCES];
+        int width = m_env.getMaze().getWidth();
+        h = m_dist.distance(cell % width, cell / width, m_exit.x, m_exit.y);
+      }
+      m_open.insert(next, cost + h, h);
+    }
+  }
+
+  /**
+   * Calcula los movimientos necesarios para llegar a la siguiente entrada del
+   * plan (o a la salida, tras la última).
+   *
+   * @return Si hay un tramo más que recorrer y se ha podido calcular.
+   */
+  private boolean refineNextSegment () {
+    Maze maze = m_env.getMaze();
+    MazeClusters clusters = maze.getClusters();
+    int width = maze.getWidth();
+    int cell = m_pos.y * width + m_pos.x;
+
+    m_directions.clear();
+    m_direction_index = 0;
+
+    while (m_waypoint_index <= m_waypoints.length) {
+      // Tras la última entrada sólo queda un paso hasta la salida
+      if (m_waypoint_index == m_waypoints.length) {
+        m_waypoint_index++;
+        Direction dir = Direction.fromPoints(m_pos, m_exit);
+        if (dir == null || !clusters.isOpen(m_pos.y, m_pos.x, dir))
+          return false;
+
+        m_directions.add(dir);
+        return true;
+      }
+
+      int target = m_waypoints[m_waypoint_index++];
+      if (target == cell)
+        continue;
+
+      int tx = target % width, ty = target / width;
+      if (clusters.getCluster(ty, tx) != clusters.getCluster(m_pos.y, m_pos.x)) {
+        // Las entradas de clústeres distintos son adyacentes
+        Direction dir = Direction.fromPoints(m_pos, new Point(tx, ty));
+        if (dir == null || !clusters.isOpen(m_pos.y, m_pos.x, dir))
+          return false;
+
+        m_directions.add(dir);
+        return true;
+      }
+
+      return clusters.findPath(cell, target, m_directions, getClusterBuffer());
+    }
+
+    return false;
+  }
+
+  /**
+   * Prepara las estructuras de la búsqueda para una nueva planificación,
+   * creándolas de nuevo sólo si el número de nodos ha cambiado.
+   *
+   * @param nodes
+   *          Número de nodos del grafo de búsqueda.
+   */
+  private void prepareSearch (int nodes) {
+    if (m_open == null || m_open.capacity() != nodes) {
+      m_open = new IndexedHeap(nodes);
+      m_closed = new BitSet(nodes);
+      m_cost = new double [nodes];
+      m_parent = new int [nodes];
+      m_stamp = new int [nodes];
+      m_search = 0;
+    }
+    else {
+      m_open.clear();
+      m_closed.clear();
+    }
+
+    m_search++;
+  }
+
+  /**
+   * Obtiene la memoria de trabajo de las búsquedas dentro de un clúster,
+   * creándola la primera vez que se necesita.
+   *
+   * @return Memoria de trabajo propia del agente.
+   */
+  private MazeClusters.SearchBuffer getClusterBuffer () {
+    if (m_cluster_buffer == null) {
+      m_cluster_buffer = new MazeClusters.SearchBuffer();
+      m_entrance_distances = new int [MazeClusters.MAX_ENTRANCES];
+    }
+    return m_cluster_buffer;
+  }
+
+  /**
+   * Extrae la información del objeto a partir de una forma serializada del
+   * mismo.
+   *
+   * @param input
+   *          Flujo de entrada con la información del objeto.
+   * @throws ClassNotFoundException
+   *           Si se trata de un objeto de otra clase.
+   * @throws IOException
+   *           Si no se puede leer el flujo de entrada.
+   */
+  private void readObject (ObjectInputStream input) throws ClassNotFoundException, IOException {
+    input.defaultReadObject();
+    m_pos = new Point();
+    resetMemory();
+  }
+}
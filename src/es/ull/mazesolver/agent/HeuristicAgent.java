@@ -28,7 +28,7 @@ package es.ull.mazesolver.agent;
 import es.ull.mazesolver.agent.distance.DistanceCalculator;
 import es.ull.mazesolver.agent.distance.ManhattanDistance;
 import es.ull.mazesolver.gui.MainWindow;
-import es.ull.mazesolver.gui.environment.Environment;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Representa las características comunes a todos los agentes heurísticos, que
@@ -50,11 +50,24 @@ public abstract class HeuristicAgent extends Agent {
    * @param env
    *          Entorno en el que colocar el agente.
    */
-  public HeuristicAgent (Environment env) {
+  public HeuristicAgent (SimulationEngine env) {
     super(env);
     m_dist = new ManhattanDistance();
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * es.ull.mazesolver.agent.Agent#setEnvironment(es.ull.mazesolver.util.SimulationEngine)
+   */
+  @Override
+  public void setEnvironment (SimulationEngine env) {
+    super.setEnvironment(env);
+    if (m_dist != null)
+      m_dist.setMaze(env.getMaze());
+  }
+
   /**
    * Cambia el algoritmo de cálculo de distancias.
    *
@@ -67,6 +80,8 @@ public abstract class HeuristicAgent extends Agent {
           MainWindow.getTranslations().exception().invalidDistanceCalculator());
 
     m_dist = (DistanceCalculator) dist.clone();
+    if (m_env != null)
+      m_dist.setMaze(m_env.getMaze());
   }
 
   /**
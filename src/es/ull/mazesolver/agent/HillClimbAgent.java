@@ -35,10 +35,10 @@ import java.util.TreeMap;
 
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.HeuristicAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.Maze;
 import es.ull.mazesolver.maze.MazeCell;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Agente que implementa el comportamiento del algoritmo de escalada. Siempre
@@ -59,7 +59,7 @@ public class HillClimbAgent extends HeuristicAgent {
    * @param env
    *          Entorno en el que se quiere colocar.
    */
-  public HillClimbAgent (Environment env) {
+  public HillClimbAgent (SimulationEngine env) {
     super(env);
     m_stack = new Stack <Direction>();
   }
@@ -67,10 +67,10 @@ public class HillClimbAgent extends HeuristicAgent {
   /*
    * (non-Javadoc)
    *
-   * @see agent.Agent#setEnvironment(gui.environment.Environment)
+   * @see agent.Agent#setEnvironment(util.SimulationEngine)
    */
   @Override
-  public void setEnvironment (Environment env) {
+  public void setEnvironment (SimulationEngine env) {
     super.setEnvironment(env);
 
     Maze maze = env.getMaze();
@@ -29,9 +29,9 @@ import java.awt.Color;
 
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.PATableAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.MazeCell.Vision;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Clase que representa a un agente basado en una tabla de percepción-acción.
@@ -45,7 +45,7 @@ public class PATableAgent extends Agent {
    * Crea el agente a partir de un entorno, con la configuración por defecto.
    * @param env Entorno en el que crear el agente.
    */
-  public PATableAgent (Environment env) {
+  public PATableAgent (SimulationEngine env) {
     super(env);
 
     m_table = new Direction[][][][]{
@@ -116,10 +116,11 @@ public class PATableAgent extends Agent {
   @Override
   public Direction getNextMovement () {
     // Cualquier lugar al que no nos podamos mover se considerará una "pared"
-    Vision up = m_env.movementAllowed(m_pos, Direction.UP)? Vision.EMPTY : Vision.WALL;
-    Vision down = m_env.movementAllowed(m_pos, Direction.DOWN)? Vision.EMPTY : Vision.WALL;
-    Vision left = m_env.movementAllowed(m_pos, Direction.LEFT)? Vision.EMPTY : Vision.WALL;
-    Vision right = m_env.movementAllowed(m_pos, Direction.RIGHT)? Vision.EMPTY : Vision.WALL;
+    int perception = perceive();
+    Vision up = Perception.movementAllowed(perception, Direction.UP)? Vision.EMPTY : Vision.WALL;
+    Vision down = Perception.movementAllowed(perception, Direction.DOWN)? Vision.EMPTY : Vision.WALL;
+    Vision left = Perception.movementAllowed(perception, Direction.LEFT)? Vision.EMPTY : Vision.WALL;
+    Vision right = Perception.movementAllowed(perception, Direction.RIGHT)? Vision.EMPTY : Vision.WALL;
 
     return m_table[visionToIndex(up)][visionToIndex(down)]
                   [visionToIndex(left)][visionToIndex(right)];
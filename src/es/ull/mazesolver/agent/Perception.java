@@ -0,0 +1,114 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file Perception.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.agent;
+
+import es.ull.mazesolver.maze.MazeCell;
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * Operaciones sobre las percepciones de los agentes. Una percepción es lo que
+ * ve un agente en las 4 direcciones a su alrededor y si ha visitado cada una
+ * de esas celdas, codificado en un entero con 3 bits por dirección (2 para el
+ * {@link MazeCell.Vision} y 1 para la visita). Al ser un valor primitivo, es
+ * inmutable y tomarla no reserva memoria.
+ *
+ * @see Agent#perceive()
+ */
+public class Perception {
+  private static final int BITS_PER_DIRECTION = 3;
+  private static final int VISION_MASK = 0x3;
+  private static final int VISITED_BIT = 0x4;
+
+  private static final MazeCell.Vision [] VISIONS = MazeCell.Vision.values();
+
+  /**
+   * Número de percepciones distintas que puede tener un agente.
+   */
+  public static final int SIZE = 1 << (BITS_PER_DIRECTION * (Direction.MAX_DIRECTIONS - 1));
+
+  private Perception () {
+  }
+
+  /**
+   * Añade a una percepción lo que se ve en una dirección.
+   *
+   * @param perception
+   *          Percepción codificada sin información sobre esa dirección.
+   * @param dir
+   *          Dirección.
+   * @param vision
+   *          Estado de la celda en esa dirección.
+   * @param visited
+   *          Si la celda en esa dirección ha sido visitada.
+   * @return Percepción con la información de la dirección añadida.
+   */
+  public static int with (int perception, Direction dir, MazeCell.Vision vision, boolean visited) {
+    int bits = vision.ordinal() | (visited? VISITED_BIT : 0);
+    return perception | bits << ((dir.ordinal() - 1) * BITS_PER_DIRECTION);
+  }
+
+  /**
+   * Extrae de una percepción lo que se ve en una dirección.
+   *
+   * @param perception
+   *          Percepción codificada.
+   * @param dir
+   *          Dirección a consultar.
+   * @return Estado de la celda en esa dirección.
+   */
+  public static MazeCell.Vision getVision (int perception, Direction dir) {
+    return VISIONS[(perception >> ((dir.ordinal() - 1) * BITS_PER_DIRECTION)) & VISION_MASK];
+  }
+
+  /**
+   * Extrae de una percepción si la celda en una dirección ha sido visitada.
+   *
+   * @param perception
+   *          Percepción codificada.
+   * @param dir
+   *          Dirección a consultar.
+   * @return Si la celda en esa dirección ha sido visitada.
+   */
+  public static boolean hasVisited (int perception, Direction dir) {
+    return ((perception >> ((dir.ordinal() - 1) * BITS_PER_DIRECTION)) & VISITED_BIT) != 0;
+  }
+
+  /**
+   * Indica si según una percepción el agente se puede mover en una dirección,
+   * que es cuando la celda está libre o fuera del laberinto.
+   *
+   * @param perception
+   *          Percepción codificada.
+   * @param dir
+   *          Dirección a consultar.
+   * @return Si el movimiento en esa dirección está permitido.
+   */
+  public static boolean movementAllowed (int perception, Direction dir) {
+    MazeCell.Vision vision = getVision(perception, dir);
+    return vision == MazeCell.Vision.EMPTY || vision == MazeCell.Vision.OFFLIMITS;
+  }
+}
@@ -33,10 +33,10 @@ import java.util.Stack;
 
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.SimpleAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.Maze;
 import es.ull.mazesolver.maze.MazeCell;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Agente que implementa el comportamiento del algoritmo recursivo con
@@ -57,7 +57,7 @@ public class RecursiveAgent extends Agent {
    * @param env
    *          Entorno en el que se quiere colocar.
    */
-  public RecursiveAgent (Environment env) {
+  public RecursiveAgent (SimulationEngine env) {
     super(env);
     m_stack = new Stack <Direction>();
   }
@@ -65,10 +65,10 @@ public class RecursiveAgent extends Agent {
   /*
    * (non-Javadoc)
    *
-   * @see agent.Agent#setEnvironment(gui.environment.Environment)
+   * @see agent.Agent#setEnvironment(util.SimulationEngine)
    */
   @Override
-  public void setEnvironment (Environment env) {
+  public void setEnvironment (SimulationEngine env) {
     super.setEnvironment(env);
 
     Maze maze = env.getMaze();
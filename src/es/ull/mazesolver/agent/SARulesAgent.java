@@ -27,32 +27,31 @@ package es.ull.mazesolver.agent;
 
 import java.awt.Color;
 import java.awt.Point;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import java.util.Collections;
+import java.util.List;
 
 import es.ull.mazesolver.agent.rules.RuleAction;
+import es.ull.mazesolver.agent.rules.RuleTable;
+import es.ull.mazesolver.agent.rules.SituationActionProgram;
 import es.ull.mazesolver.agent.rules.SituationActionRule;
-import es.ull.mazesolver.agent.rules.parser.SituationActionErrorHandler;
-import es.ull.mazesolver.agent.rules.parser.SituationActionLexer;
-import es.ull.mazesolver.agent.rules.parser.SituationActionParser;
-import es.ull.mazesolver.agent.rules.parser.SituationActionParser.Sa_ruleContext;
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.SARulesAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.Maze;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Agente cuya lógica se basa en reglas de situación-acción. Sigue una
  * arquitectura de subsunción, donde se aplica la regla de mayor precedencia
  * para la cual la situación se cumple.
+ * <br><br>
+ * Al compilar el código, las reglas se convierten en una {@link RuleTable}, de
+ * forma que en cada paso sólo hay que mirar alrededor una vez y consultar la
+ * tabla. Para depurar las reglas se puede volver a evaluarlas una a una con
+ * {@link SARulesAgent#setTreeEvaluation(boolean)}.
  */
 public class SARulesAgent extends Agent {
   private static final long serialVersionUID = -6154538349034427858L;
@@ -81,8 +80,10 @@ public class SARulesAgent extends Agent {
     + "!(down wall or down agent) -> move down.\n";
 
   private String m_code;
-  private transient SituationActionErrorHandler m_error_handler;
-  private transient ArrayList <SituationActionRule> m_rules;
+  private transient List <String> m_errors;
+  private transient List <SituationActionRule> m_rules;
+  private transient RuleTable m_table;
+  private boolean m_tree_evaluation;
   private transient boolean [][] m_visited;
 
   /**
@@ -92,10 +93,10 @@ public class SARulesAgent extends Agent {
    * @param env
    *          Entorno donde se sitúa el agente.
    */
-  public SARulesAgent (Environment env) {
+  public SARulesAgent (SimulationEngine env) {
     super(env);
-    m_error_handler = new SituationActionErrorHandler();
-    m_rules = new ArrayList <SituationActionRule>();
+    m_errors = Collections.emptyList();
+    m_rules = Collections.emptyList();
     m_code = DEFAULT_AGENT_SRC;
     compileCode();
   }
@@ -119,56 +120,57 @@ public class SARulesAgent extends Agent {
 
   /**
    * Convierte el código fuente guardado en m_code en la representación de las
-   * reglas de situación-acción.
+   * reglas de situación-acción. Los agentes con el mismo código comparten el
+   * resultado de la compilación (ver {@link SituationActionProgram}).
    *
    * @return {@code true} si la compilación fue exitosa y {@code false} si no.
    */
   public boolean compileCode () {
-    m_error_handler.resetErrorList();
-
-    ArrayList <SituationActionRule> rules = new ArrayList <SituationActionRule>();
-    InputStream stream = new ByteArrayInputStream(m_code.getBytes(StandardCharsets.UTF_8));
-
-    try {
-      ANTLRInputStream input = new ANTLRInputStream(stream);
-      SituationActionLexer lexer = new SituationActionLexer(input);
-      CommonTokenStream tokens = new CommonTokenStream(lexer);
-      SituationActionParser parser = new SituationActionParser(tokens);
+    SituationActionProgram program = SituationActionProgram.compile(m_code);
+    m_errors = program.getErrors();
 
-      lexer.removeErrorListeners();
-      parser.removeErrorListeners();
-      lexer.addErrorListener(m_error_handler);
-      parser.addErrorListener(m_error_handler);
-
-      rules = new ArrayList <SituationActionRule>();
-      for (Sa_ruleContext i: parser.program().sa_rule())
-        rules.add(SituationActionRule.createFromTree(i));
-    }
-    catch (Exception e) {
-      return false;
-    }
-
-    if (m_error_handler.hasErrors())
+    if (!program.isValid())
       return false;
     else {
-      m_rules = rules;
+      m_rules = program.getRules();
+      m_table = program.getTable();
       return true;
     }
   }
 
+  /**
+   * @return Si las reglas se evalúan una a una en lugar de usar la tabla
+   *         compilada.
+   */
+  public boolean isTreeEvaluation () {
+    return m_tree_evaluation;
+  }
+
+  /**
+   * Cambia la forma de evaluar las reglas. El resultado es el mismo, pero la
+   * evaluación de las reglas una a una permite seguir su ejecución.
+   *
+   * @param tree_evaluation
+   *          {@code true} para evaluar las reglas una a una y {@code false}
+   *          para utilizar la tabla compilada.
+   */
+  public void setTreeEvaluation (boolean tree_evaluation) {
+    m_tree_evaluation = tree_evaluation;
+  }
+
   /**
    * @return La lista de errores de compilación.
    */
   public ArrayList<String> getCompilationErrors () {
-    return m_error_handler.getErrors();
+    return new ArrayList <String>(m_errors);
   }
 
   /*
    * (non-Javadoc)
    *
-   * @see agent.Agent#setEnvironment(Environment)
+   * @see agent.Agent#setEnvironment(SimulationEngine)
    */
-  public void setEnvironment (Environment env) {
+  public void setEnvironment (SimulationEngine env) {
     super.setEnvironment(env);
     Maze maze = m_env.getMaze();
     m_visited = new boolean [maze.getHeight()] [maze.getWidth()];
@@ -201,6 +203,10 @@ public class SARulesAgent extends Agent {
    */
   @Override
   public Direction getNextMovement () {
+    int perception = perceive();
+    if (m_table != null && !m_tree_evaluation)
+      return m_table.getDirection(perception);
+
     // Recorremos las reglas y nos quedamos con la primera acción para la
     // que se cumple la situación (arquitectura de subsunción).
     for (SituationActionRule r: m_rules) {
@@ -244,13 +250,12 @@ public class SARulesAgent extends Agent {
     return new SARulesAgentConfigurationPanel(this);
   }
 
-  /**
-   * Indica si una celda adyacente al agente ha sido visitada ya por el mismo.
+  /*
+   * (non-Javadoc)
    *
-   * @param dir
-   *          Dirección en la que hay que mirar.
-   * @return Si la celda adyacente en esa dirección ha sido visitada o no.
+   * @see es.ull.mazesolver.agent.Agent#hasVisited(es.ull.mazesolver.util.Direction)
    */
+  @Override
   public boolean hasVisited (Direction dir) {
     Point p = dir.movePoint(m_pos);
     Maze maze = m_env.getMaze();
@@ -271,9 +276,9 @@ public class SARulesAgent extends Agent {
     SARulesAgent ag = new SARulesAgent(m_env);
     ag.setAgentColor(getAgentColor());
     ag.m_code = m_code;
-    ag.m_rules = new ArrayList <SituationActionRule>(m_rules.size());
-    for (SituationActionRule r: m_rules)
-      ag.m_rules.add((SituationActionRule) r.clone());
+    ag.m_rules = m_rules;
+    ag.m_table = m_table;
+    ag.m_tree_evaluation = m_tree_evaluation;
 
     return ag;
   }
@@ -292,8 +297,8 @@ public class SARulesAgent extends Agent {
   private void readObject (ObjectInputStream input) throws ClassNotFoundException, IOException {
     input.defaultReadObject();
 
-    m_error_handler = new SituationActionErrorHandler();
-    m_rules = new ArrayList <SituationActionRule>();
+    m_errors = Collections.emptyList();
+    m_rules = Collections.emptyList();
     compileCode();
   }
 }
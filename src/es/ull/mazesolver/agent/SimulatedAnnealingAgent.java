@@ -34,9 +34,9 @@ import java.util.Collections;
 
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.SimulatedAnnealingAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.MazeCell;
 import es.ull.mazesolver.util.Direction;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Agente que implementa el algoritmo meta-heurístico "Recocido simulado".
@@ -59,7 +59,7 @@ public class SimulatedAnnealingAgent extends HeuristicAgent {
    * @param env
    *          Entorno en el que colocar al agente.
    */
-  public SimulatedAnnealingAgent (Environment env) {
+  public SimulatedAnnealingAgent (SimulationEngine env) {
     super(env);
     m_actual_temp = m_initial_temp = DEFAULT_TEMPERATURE;
     m_cooling_rate = DEFAULT_COOLING_RATE;
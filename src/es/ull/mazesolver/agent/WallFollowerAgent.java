@@ -31,9 +31,9 @@ import java.io.ObjectInputStream;
 
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.configuration.WallFollowerAgentConfigurationPanel;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.util.Direction;
 import es.ull.mazesolver.util.Rotation;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Agente que implementa la funcionalidad de seguir paredes. Una vez se le
@@ -57,7 +57,7 @@ public class WallFollowerAgent extends Agent {
    * @param env
    *          Entorno en el que colocar el agente.
    */
-  public WallFollowerAgent (Environment env) {
+  public WallFollowerAgent (SimulationEngine env) {
     super(env);
     m_last_dir = Direction.RIGHT;
     m_rot = Rotation.CW;
@@ -116,8 +116,9 @@ public class WallFollowerAgent extends Agent {
   public Direction getNextMovement () {
     // Primero intentamos girar al lado que estamos siguiendo. Si está libre,
     // nos movemos en esa dirección
+    int perception = perceive();
     Direction new_dir = m_last_dir.rotate(m_rot);
-    if (m_env.movementAllowed(m_pos, new_dir)) {
+    if (Perception.movementAllowed(perception, new_dir)) {
       m_last_dir = new_dir;
       return new_dir;
     }
@@ -128,7 +129,7 @@ public class WallFollowerAgent extends Agent {
       // de direcciones posibles
       for (int i = 0; i < Direction.MAX_DIRECTIONS - 2; i++) {
         new_dir = new_dir.rotate(m_rot.getOpposite());
-        if (m_env.movementAllowed(m_pos, new_dir)) {
+        if (Perception.movementAllowed(perception, new_dir)) {
           m_last_dir = new_dir;
           return new_dir;
         }
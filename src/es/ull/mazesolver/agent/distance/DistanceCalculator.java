@@ -28,6 +28,8 @@ package es.ull.mazesolver.agent.distance;
 import java.awt.Point;
 import java.io.Serializable;
 
+import es.ull.mazesolver.maze.Maze;
+
 /**
  * Interfaz que implementan las clases que pueden medir la distancia entre 2
  * puntos en 2 dimensiones.
@@ -40,7 +42,7 @@ public abstract class DistanceCalculator implements Serializable, Cloneable {
    * {@link DistanceCalculator}.
    */
   public static enum DistanceType {
-    EUCLIDEAN, MANHATTAN;
+    EUCLIDEAN, MANHATTAN, MAZE;
 
     public String toString () {
       switch (this) {
@@ -48,6 +50,8 @@ public abstract class DistanceCalculator implements Serializable, Cloneable {
           return "Euclidean Distance";
         case MANHATTAN:
           return "Manhattan Distance";
+        case MAZE:
+          return "Maze Distance";
         default:
           return "";
       }
@@ -68,11 +72,23 @@ public abstract class DistanceCalculator implements Serializable, Cloneable {
         return new EuclideanDistance();
       case MANHATTAN:
         return new ManhattanDistance();
+      case MAZE:
+        return new MazeDistance();
       default:
         return null;
     }
   }
 
+  /**
+   * Indica el laberinto en el que se van a medir las distancias. Las métricas
+   * que no dependen del laberinto ignoran este valor.
+   *
+   * @param maze
+   *          Laberinto en el que se encuentran los puntos.
+   */
+  public void setMaze (Maze maze) {
+  }
+
   /**
    * Mide la distancia entre 2 puntos.
    *
@@ -45,6 +45,16 @@ public class ManhattanDistance extends DistanceCalculator {
     return Math.abs(p2.x - p1.x) + Math.abs(p2.y - p1.y);
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see agent.distance.DistanceCalculator#distance(int, int, int, int)
+   */
+  @Override
+  public double distance (int x1, int y1, int x2, int y2) {
+    return Math.abs(x2 - x1) + Math.abs(y2 - y1);
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -0,0 +1,135 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+/**
+ * @file MazeDistance.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.agent.distance;
+
+import java.awt.Point;
+
+import es.ull.mazesolver.maze.Maze;
+
+/**
+ * Métrica de distancia que mide el número real de pasos que hay que dar dentro
+ * del laberinto para llegar hasta su salida. Las distancias se obtienen del
+ * campo de distancias que cada {@link Maze} calcula una sola vez y comparte
+ * entre todos los agentes que lo recorren.
+ *
+ * Cuando ninguno de los dos puntos es la salida, o todavía no se conoce el
+ * laberinto, se utiliza la distancia de Manhattan.
+ */
+public class MazeDistance extends DistanceCalculator {
+  private static final long serialVersionUID = 2468250914447658412L;
+
+  private transient Maze m_maze;
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * es.ull.mazesolver.agent.distance.DistanceCalculator#setMaze(es.ull.mazesolver
+   * .maze.Maze)
+   */
+  @Override
+  public void setMaze (Maze maze) {
+    m_maze = maze;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see agent.distance.DistanceCalculator#distance(java.awt.Point,
+   * java.awt.Point)
+   */
+  @Override
+  public double distance (Point p1, Point p2) {
+    return distance(p1.x, p1.y, p2.x, p2.y);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see agent.distance.DistanceCalculator#distance(int, int, int, int)
+   */
+  @Override
+  public double distance (int x1, int y1, int x2, int y2) {
+    Maze maze = m_maze;
+    if (maze != null) {
+      int exit_x = maze.getExitX(), exit_y = maze.getExitY();
+      if (x2 == exit_x && y2 == exit_y)
+        return exitDistance(maze, x1, y1, exit_x, exit_y);
+      if (x1 == exit_x && y1 == exit_y)
+        return exitDistance(maze, x2, y2, exit_x, exit_y);
+    }
+
+    return Math.abs(x2 - x1) + Math.abs(y2 - y1);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see agent.distance.DistanceCalculator#getType()
+   */
+  @Override
+  public DistanceType getType () {
+    return DistanceType.MAZE;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see agent.distance.DistanceCalculator#clone()
+   */
+  @Override
+  public Object clone () {
+    MazeDistance dist = new MazeDistance();
+    dist.m_maze = m_maze;
+    return dist;
+  }
+
+  /**
+   * Obtiene la distancia desde una posición hasta la salida del laberinto.
+   *
+   * @param maze
+   *          Laberinto.
+   * @param x
+   *          Posición en el eje X.
+   * @param y
+   *          Posición en el eje Y.
+   * @param exit_x
+   *          Columna de la salida del laberinto.
+   * @param exit_y
+   *          Fila de la salida del laberinto.
+   * @return Número de pasos hasta la salida o infinito si no es alcanzable.
+   */
+  private static double exitDistance (Maze maze, int x, int y, int exit_x, int exit_y) {
+    if (x == exit_x && y == exit_y)
+      return 0;
+
+    if (x < 0 || y < 0 || x >= maze.getWidth() || y >= maze.getHeight())
+      return Double.POSITIVE_INFINITY;
+
+    int dist = maze.getExitDistance(y, x);
+    return dist < 0? Double.POSITIVE_INFINITY : dist;
+  }
+}
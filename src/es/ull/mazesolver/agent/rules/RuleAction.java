@@ -32,8 +32,8 @@ import es.ull.mazesolver.util.Direction;
 /**
  * Clase que representa a la acción asociada a una regla.
  */
-public class RuleAction implements Cloneable {
-  private Direction m_direction;
+public class RuleAction {
+  private final Direction m_direction;
 
   /**
    * Crea una acción a partir de un nodo de acción del árbol de parseo.
@@ -85,14 +85,4 @@ public class RuleAction implements Cloneable {
     return m_direction;
   }
 
-  /*
-   * (non-Javadoc)
-   *
-   * @see java.lang.Object#clone()
-   */
-  @Override
-  protected Object clone () {
-    return new RuleAction(m_direction);
-  }
-
 }
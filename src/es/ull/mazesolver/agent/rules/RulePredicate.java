@@ -25,6 +25,8 @@
  */
 package es.ull.mazesolver.agent.rules;
 
+import es.ull.mazesolver.agent.Agent;
+import es.ull.mazesolver.agent.Perception;
 import es.ull.mazesolver.agent.SARulesAgent;
 import es.ull.mazesolver.agent.rules.parser.SituationActionParser.AndContext;
 import es.ull.mazesolver.agent.rules.parser.SituationActionParser.DirectionContext;
@@ -39,8 +41,8 @@ import es.ull.mazesolver.util.Direction;
 /**
  * Representa una situación o predicado dentro de una regla de situación-acción.
  */
-public abstract class RulePredicate implements Cloneable {
-  protected boolean m_negated = false;
+public abstract class RulePredicate {
+  protected final boolean m_negated;
 
   /**
    * Distintos conectores de reglas que soporta el lenguaje.
@@ -58,72 +60,95 @@ public abstract class RulePredicate implements Cloneable {
    * @return Predicado creado a partir del árbol.
    */
   public static RulePredicate createFromTree (SituationContext ctx) {
+    return createFromTree(ctx, false);
+  }
+
+  /**
+   * Construye un predicado a partir de una "situación" del árbol de parseo,
+   * aplicando la negación heredada de los paréntesis que la rodean. Los
+   * predicados son inmutables, de modo que la negación se resuelve aquí en
+   * lugar de modificarlos una vez creados.
+   *
+   * @param ctx
+   *          Nodo del árbol de parseo con un predicado o situación que se
+   *          quiere procesar.
+   * @param negated
+   *          Si el predicado resultante debe invertir su resultado.
+   * @return Predicado creado a partir del árbol.
+   */
+  private static RulePredicate createFromTree (SituationContext ctx, boolean negated) {
     // Lo que hay... (v_v)
     if (ctx instanceof OrContext)
-      return createFromTree((OrContext) ctx);
+      return createFromTree((OrContext) ctx, negated);
     if (ctx instanceof AndContext)
-      return createFromTree((AndContext) ctx);
+      return createFromTree((AndContext) ctx, negated);
     if (ctx instanceof ParensContext)
-      return createFromTree((ParensContext) ctx);
+      return createFromTree((ParensContext) ctx, negated);
     if (ctx instanceof SingleTermContext)
-      return createFromTree((SingleTermContext) ctx);
+      return createFromTree((SingleTermContext) ctx, negated);
 
     return null;
   }
 
-  private static RulePredicate createFromTree (OrContext ctx) {
+  private static RulePredicate createFromTree (OrContext ctx, boolean negated) {
     return new ComplexRulePredicate(createFromTree(ctx.situation(0)),
-        createFromTree(ctx.situation(1)), RuleConnector.OR);
+        createFromTree(ctx.situation(1)), RuleConnector.OR, negated);
   }
 
-  private static RulePredicate createFromTree (AndContext ctx) {
+  private static RulePredicate createFromTree (AndContext ctx, boolean negated) {
     return new ComplexRulePredicate(createFromTree(ctx.situation(0)),
-        createFromTree(ctx.situation(1)), RuleConnector.AND);
+        createFromTree(ctx.situation(1)), RuleConnector.AND, negated);
   }
 
-  private static RulePredicate createFromTree (ParensContext ctx) {
-    RulePredicate pred = createFromTree(ctx.situation());
-    if (ctx.NOT() != null)
-      pred.negate();
-    return pred;
+  private static RulePredicate createFromTree (ParensContext ctx, boolean negated) {
+    return createFromTree(ctx.situation(), negated ^ (ctx.NOT() != null));
   }
 
-  private static RulePredicate createFromTree (SingleTermContext ctx) {
-    return SimpleRulePredicate.createFromTree(ctx.term());
+  private static RulePredicate createFromTree (SingleTermContext ctx, boolean negated) {
+    return SimpleRulePredicate.createFromTree(ctx.term(), negated);
   }
 
   /**
-   * Invierte el resultado de la regla.
+   * Crea un predicado.
+   *
+   * @param negated
+   *          Si el resultado de la evaluación debe invertirse.
    */
-  public void negate () {
-    m_negated = !m_negated;
+  protected RulePredicate (boolean negated) {
+    m_negated = negated;
   }
 
   /**
-   * Evalúa la regla para el agente indicado e indica si se cumple o no.
+   * Evalúa la regla para el agente indicado e indica si se cumple o no. Se
+   * utiliza la última percepción tomada por el agente, por lo que no se
+   * consulta el entorno.
    *
    * @param ag
    *          Agente sobre el que se quiere evaluar el predicado.
    * @return Si la situación representada se da para el agente indicado.
+   * @see Agent#perceive()
    */
-  public abstract boolean evaluate (SARulesAgent ag);
+  public boolean evaluate (SARulesAgent ag) {
+    return evaluate(ag.getPerception());
+  }
 
-  /*
-   * (non-Javadoc)
+  /**
+   * Evalúa la regla para una percepción concreta e indica si se cumple o no.
    *
-   * @see java.lang.Object#clone()
+   * @param perception
+   *          Percepción codificada como se indica en {@link Perception}.
+   * @return Si la situación representada se da para esa percepción.
    */
-  @Override
-  public abstract Object clone ();
+  public abstract boolean evaluate (int perception);
 
   /**
    * Subclase que gestiona una regla sin conectores. Es decir, un término de la
    * gramática: "term".
    */
   private static class SimpleRulePredicate extends RulePredicate {
-    private Direction m_direction;
-    private MazeCell.Vision m_vision;
-    private boolean m_visited_status;
+    private final Direction m_direction;
+    private final MazeCell.Vision m_vision;
+    private final boolean m_visited_status;
 
     /**
      * Construye un término a partir del árbol de parseo generado.
@@ -131,9 +156,11 @@ public abstract class RulePredicate implements Cloneable {
      * @param term_ctx
      *          Contexto que hace referencia al término que se quiere convertir
      *          a regla simple.
+     * @param negated
+     *          Si el término está dentro de unos paréntesis negados.
      * @return Regla simple que representa el término.
      */
-    public static SimpleRulePredicate createFromTree (TermContext term_ctx) {
+    public static SimpleRulePredicate createFromTree (TermContext term_ctx, boolean negated) {
       DirectionContext ctx = term_ctx.direction();
 
       // Extraemos la dirección
@@ -159,17 +186,11 @@ public abstract class RulePredicate implements Cloneable {
       else if (term_ctx.OFFLIMITS() != null)
         vision = MazeCell.Vision.OFFLIMITS;
 
-      // Creamos la regla y la negamos si es su caso
-      SimpleRulePredicate pred;
+      // Creamos la regla, negada si es su caso
+      negated ^= term_ctx.NOT() != null;
       if (vision == null)
-        pred = new SimpleRulePredicate(dir);
-      else
-        pred = new SimpleRulePredicate(dir, vision);
-
-      if (term_ctx.NOT() != null)
-        pred.negate();
-
-      return pred;
+        return new SimpleRulePredicate(dir, negated);
+      return new SimpleRulePredicate(dir, vision, negated);
     }
 
     /**
@@ -180,10 +201,14 @@ public abstract class RulePredicate implements Cloneable {
      *          Dirección a la que hace referencia el término.
      * @param st
      *          Estado de la celda.
+     * @param negated
+     *          Si el resultado de la evaluación debe invertirse.
      */
-    public SimpleRulePredicate (Direction dir, MazeCell.Vision vision) {
+    public SimpleRulePredicate (Direction dir, MazeCell.Vision vision, boolean negated) {
+      super(negated);
       m_direction = dir;
       m_vision = vision;
+      m_visited_status = false;
     }
 
     /**
@@ -192,52 +217,40 @@ public abstract class RulePredicate implements Cloneable {
      *
      * @param dir
      *          Dirección a la que hace referencia el término.
+     * @param negated
+     *          Si el resultado de la evaluación debe invertirse.
      */
-    public SimpleRulePredicate (Direction dir) {
+    public SimpleRulePredicate (Direction dir, boolean negated) {
+      super(negated);
       m_direction = dir;
+      m_vision = null;
       m_visited_status = true;
     }
 
     /*
      * (non-Javadoc)
      *
-     * @see agent.rules.RulePredicate#evaluate(agent.Agent)
+     * @see es.ull.mazesolver.agent.rules.RulePredicate#evaluate(int)
      */
     @Override
-    public boolean evaluate (SARulesAgent ag) {
-      boolean result = false;
-
+    public boolean evaluate (int perception) {
+      boolean result;
       if (m_visited_status)
-        result = ag.hasVisited(m_direction);
-      else {
-        MazeCell.Vision vision = ag.look(m_direction);
-        result = vision == m_vision;
-      }
+        result = Perception.hasVisited(perception, m_direction);
+      else
+        result = Perception.getVision(perception, m_direction) == m_vision;
 
       return result ^ m_negated;
     }
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see java.lang.Object#clone()
-     */
-    @Override
-    public Object clone () {
-      SimpleRulePredicate pred = new SimpleRulePredicate(m_direction, m_vision);
-      pred.m_negated = m_negated;
-      pred.m_visited_status = m_visited_status;
-      return pred;
-    }
-
   }
 
   /**
    * Regla que gestiona la unión de 2 reglas usando los operadores definidos.
    */
   private static class ComplexRulePredicate extends RulePredicate {
-    private RulePredicate m_p1, m_p2;
-    private RuleConnector m_connector;
+    private final RulePredicate m_p1, m_p2;
+    private final RuleConnector m_connector;
 
     /**
      * Crea un nuevo predicado compuesto.
@@ -248,8 +261,12 @@ public abstract class RulePredicate implements Cloneable {
      *          Regla derecha.
      * @param con
      *          Conector entre las reglas.
+     * @param negated
+     *          Si el resultado de la evaluación debe invertirse.
      */
-    public ComplexRulePredicate (RulePredicate p1, RulePredicate p2, RuleConnector con) {
+    public ComplexRulePredicate (RulePredicate p1, RulePredicate p2, RuleConnector con,
+                                 boolean negated) {
+      super(negated);
       m_p1 = p1;
       m_p2 = p2;
       m_connector = con;
@@ -258,36 +275,22 @@ public abstract class RulePredicate implements Cloneable {
     /*
      * (non-Javadoc)
      *
-     * @see agent.rules.RulePredicate#evaluate(agent.Agent)
+     * @see es.ull.mazesolver.agent.rules.RulePredicate#evaluate(int)
      */
     @Override
-    public boolean evaluate (SARulesAgent ag) {
+    public boolean evaluate (int perception) {
       boolean result = false;
       switch (m_connector) {
         case OR:
-          result = m_p1.evaluate(ag) || m_p2.evaluate(ag);
+          result = m_p1.evaluate(perception) || m_p2.evaluate(perception);
           break;
         case AND:
-          result = m_p1.evaluate(ag) && m_p2.evaluate(ag);
+          result = m_p1.evaluate(perception) && m_p2.evaluate(perception);
           break;
       }
       return result ^ m_negated;
     }
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see java.lang.Object#clone()
-     */
-    @Override
-    public Object clone () {
-      ComplexRulePredicate pred =
-          new ComplexRulePredicate((RulePredicate) m_p1.clone(), (RulePredicate) m_p2.clone(),
-              m_connector);
-      pred.m_negated = m_negated;
-      return pred;
-    }
-
   }
 
 }
@@ -0,0 +1,80 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file RuleTable.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.agent.rules;
+
+import java.util.List;
+
+import es.ull.mazesolver.agent.Perception;
+import es.ull.mazesolver.agent.SARulesAgent;
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * Tabla que contiene precalculada la acción que decide un conjunto de reglas
+ * de situación-acción para cada percepción posible del agente.
+ * <br><br>
+ * Las reglas sólo dependen de lo que ve el agente en las 4 direcciones y de si
+ * ha visitado cada una de esas celdas, así que el número de situaciones
+ * distintas es finito. Cada percepción se codifica como se indica en
+ * {@link Perception}, de forma que evaluar todas las reglas se reduce a
+ * consultar un array.
+ */
+public class RuleTable {
+  private final Direction [] m_actions;
+
+  /**
+   * Compila un conjunto de reglas evaluándolas para todas las percepciones
+   * posibles. Como en {@link SARulesAgent}, para cada percepción se elige la
+   * primera regla cuya situación se cumple.
+   *
+   * @param rules
+   *          Reglas ordenadas de mayor a menor precedencia.
+   */
+  public RuleTable (List <SituationActionRule> rules) {
+    m_actions = new Direction [Perception.SIZE];
+    for (int perception = 0; perception < Perception.SIZE; perception++) {
+      m_actions[perception] = Direction.NONE;
+      for (SituationActionRule r: rules) {
+        RuleAction act = r.getAction(perception);
+        if (act != null) {
+          m_actions[perception] = act.getDirection();
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Obtiene la acción asociada a una percepción.
+   *
+   * @param perception
+   *          Percepción codificada.
+   * @return Dirección en la que se debe mover el agente.
+   */
+  public Direction getDirection (int perception) {
+    return m_actions[perception];
+  }
+}
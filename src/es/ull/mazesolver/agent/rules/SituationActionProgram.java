@@ -0,0 +1,188 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file SituationActionProgram.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.agent.rules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import es.ull.mazesolver.agent.rules.parser.SituationActionErrorHandler;
+import es.ull.mazesolver.agent.rules.parser.SituationActionLexer;
+import es.ull.mazesolver.agent.rules.parser.SituationActionParser;
+import es.ull.mazesolver.agent.rules.parser.SituationActionParser.ProgramContext;
+import es.ull.mazesolver.agent.rules.parser.SituationActionParser.Sa_ruleContext;
+
+/**
+ * Resultado de compilar el código fuente de un agente de situación-acción. Es
+ * inmutable, así que todos los agentes que ejecutan el mismo código comparten
+ * las mismas reglas y la misma {@link RuleTable}.
+ * <br><br>
+ * Los programas compilados se guardan en una caché indexada por el código
+ * fuente, de forma que crear o clonar muchos agentes con el mismo programa
+ * sólo lo analiza una vez.
+ */
+public class SituationActionProgram {
+  private static final int CACHE_SIZE = 32;
+
+  private static final Map <String, SituationActionProgram> s_cache =
+      new LinkedHashMap <String, SituationActionProgram>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry (Map.Entry <String, SituationActionProgram> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  private final List <SituationActionRule> m_rules;
+  private final RuleTable m_table;
+  private final List <String> m_errors;
+
+  /**
+   * Crea un programa ya compilado.
+   *
+   * @param rules
+   *          Reglas del programa, o null si no se pudo compilar.
+   * @param errors
+   *          Errores de compilación.
+   */
+  private SituationActionProgram (List <SituationActionRule> rules, List <String> errors) {
+    m_rules = rules == null? null : Collections.unmodifiableList(rules);
+    m_table = rules == null? null : new RuleTable(rules);
+    m_errors = Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Obtiene el programa compilado correspondiente a un código fuente. Si ya
+   * se había compilado recientemente, se devuelve el mismo objeto.
+   *
+   * @param code
+   *          Código fuente del programa.
+   * @return Programa compilado, que puede contener errores de compilación.
+   */
+  public static SituationActionProgram compile (String code) {
+    synchronized (s_cache) {
+      SituationActionProgram program = s_cache.get(code);
+      if (program != null)
+        return program;
+    }
+
+    SituationActionProgram program = parse(code);
+    synchronized (s_cache) {
+      s_cache.put(code, program);
+    }
+    return program;
+  }
+
+  /**
+   * Analiza un código fuente. Primero se intenta en modo SLL, que es más
+   * rápido y suficiente para casi cualquier programa, abortando en el primer
+   * error. Sólo si falla se repite el análisis en modo LL completo, que es el
+   * que da los mensajes de error correctos.
+   *
+   * @param code
+   *          Código fuente del programa.
+   * @return Programa compilado.
+   */
+  private static SituationActionProgram parse (String code) {
+    SituationActionErrorHandler error_handler = new SituationActionErrorHandler();
+    ArrayList <SituationActionRule> rules = new ArrayList <SituationActionRule>();
+
+    try {
+      SituationActionLexer lexer = new SituationActionLexer(new ANTLRInputStream(code));
+      CommonTokenStream tokens = new CommonTokenStream(lexer);
+      SituationActionParser parser = new SituationActionParser(tokens);
+
+      lexer.removeErrorListeners();
+      parser.removeErrorListeners();
+      lexer.addErrorListener(error_handler);
+
+      ProgramContext program;
+      parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+      parser.setErrorHandler(new BailErrorStrategy());
+      try {
+        program = parser.program();
+      }
+      catch (ParseCancellationException e) {
+        tokens.reset();
+        parser.reset();
+        parser.addErrorListener(error_handler);
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        program = parser.program();
+      }
+
+      for (Sa_ruleContext i: program.sa_rule())
+        rules.add(SituationActionRule.createFromTree(i));
+    }
+    catch (Exception e) {
+      return new SituationActionProgram(null, error_handler.getErrors());
+    }
+
+    if (error_handler.hasErrors())
+      return new SituationActionProgram(null, error_handler.getErrors());
+    return new SituationActionProgram(rules, error_handler.getErrors());
+  }
+
+  /**
+   * @return Si el programa se compiló sin errores.
+   */
+  public boolean isValid () {
+    return m_rules != null;
+  }
+
+  /**
+   * @return Reglas del programa, de mayor a menor precedencia, o null si no se
+   *         pudo compilar. La lista no se puede modificar.
+   */
+  public List <SituationActionRule> getRules () {
+    return m_rules;
+  }
+
+  /**
+   * @return Tabla con las reglas precalculadas, o null si no se pudo compilar.
+   */
+  public RuleTable getTable () {
+    return m_table;
+  }
+
+  /**
+   * @return Lista de errores de compilación. La lista no se puede modificar.
+   */
+  public List <String> getErrors () {
+    return m_errors;
+  }
+}
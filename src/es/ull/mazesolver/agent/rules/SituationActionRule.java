@@ -25,6 +25,7 @@
  */
 package es.ull.mazesolver.agent.rules;
 
+import es.ull.mazesolver.agent.Perception;
 import es.ull.mazesolver.agent.SARulesAgent;
 import es.ull.mazesolver.agent.rules.parser.SituationActionParser.Sa_ruleContext;
 import es.ull.mazesolver.gui.MainWindow;
@@ -32,9 +33,9 @@ import es.ull.mazesolver.gui.MainWindow;
 /**
  * Clase que modela una regla de situación-acción.
  */
-public class SituationActionRule implements Cloneable {
-  private RulePredicate m_predicate;
-  private RuleAction m_action;
+public class SituationActionRule {
+  private final RulePredicate m_predicate;
+  private final RuleAction m_action;
 
   /**
    * Construye la regla asociada al nodo de tipo regla de situación-acción
@@ -68,8 +69,8 @@ public class SituationActionRule implements Cloneable {
   }
 
   /**
-   * Aplica la regla al agente analizando su entorno para decidir cuál debería
-   * ser su siguiente acción a tomar.
+   * Aplica la regla a la última percepción del agente para decidir cuál
+   * debería ser su siguiente acción a tomar.
    *
    * @param ag
    *          Agente que se quiere mover.
@@ -82,15 +83,18 @@ public class SituationActionRule implements Cloneable {
     return null;
   }
 
-  /*
-   * (non-Javadoc)
+  /**
+   * Aplica la regla a una percepción concreta, sin consultar el entorno.
    *
-   * @see java.lang.Object#clone()
+   * @param perception
+   *          Percepción codificada como se indica en {@link Perception}.
+   * @return Acción que la regla indica que se debería tomar, o null si la regla
+   *         no aplica para esa percepción.
    */
-  @Override
-  public Object clone () {
-    return new SituationActionRule((RulePredicate) m_predicate.clone(),
-        (RuleAction) m_action.clone());
+  public RuleAction getAction (int perception) {
+    if (m_predicate.evaluate(perception))
+      return m_action;
+    return null;
   }
 
 }
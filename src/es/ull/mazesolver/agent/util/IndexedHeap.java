@@ -0,0 +1,249 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file IndexedHeap.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.agent.util;
+
+import java.util.Arrays;
+
+/**
+ * Montículo binario de mínimos sobre nodos identificados por un índice entero
+ * en el rango [0, capacidad). Cada nodo aparece como mucho una vez y su
+ * prioridad se puede modificar o eliminar en O(log n), ya que se guarda la
+ * posición de cada nodo dentro del montículo.
+ * <br><br>
+ * Las prioridades están formadas por dos claves que se comparan en orden
+ * lexicográfico: la segunda sólo se utiliza para deshacer empates.
+ */
+public class IndexedHeap {
+  private int [] m_heap;
+  private int [] m_position;
+  private double [] m_primary, m_secondary;
+  private int m_size;
+
+  /**
+   * Crea un montículo vacío.
+   *
+   * @param capacity
+   *          Número de nodos distintos que puede contener.
+   */
+  public IndexedHeap (int capacity) {
+    m_heap = new int [capacity];
+    m_position = new int [capacity];
+    m_primary = new double [capacity];
+    m_secondary = new double [capacity];
+    Arrays.fill(m_position, -1);
+  }
+
+  /**
+   * @return Número de nodos distintos que puede contener el montículo.
+   */
+  public int capacity () {
+    return m_position.length;
+  }
+
+  /**
+   * @return Número de nodos dentro del montículo.
+   */
+  public int size () {
+    return m_size;
+  }
+
+  /**
+   * @return Si el montículo está vacío.
+   */
+  public boolean isEmpty () {
+    return m_size == 0;
+  }
+
+  /**
+   * Indica si un nodo está dentro del montículo.
+   *
+   * @param node
+   *          Índice del nodo.
+   * @return Si el nodo se encuentra en el montículo.
+   */
+  public boolean contains (int node) {
+    return m_position[node] >= 0;
+  }
+
+  /**
+   * Inserta un nodo con la prioridad indicada. Si el nodo ya estaba en el
+   * montículo, se actualiza su prioridad.
+   *
+   * @param node
+   *          Índice del nodo.
+   * @param primary
+   *          Clave principal de la prioridad.
+   * @param secondary
+   *          Clave para deshacer empates.
+   */
+  public void insert (int node, double primary, double secondary) {
+    int i = m_position[node];
+    if (i < 0) {
+      i = m_size++;
+      m_heap[i] = node;
+      m_position[node] = i;
+    }
+
+    m_primary[node] = primary;
+    m_secondary[node] = secondary;
+    siftDown(siftUp(i));
+  }
+
+  /**
+   * Elimina un nodo del montículo si se encuentra en él.
+   *
+   * @param node
+   *          Índice del nodo.
+   */
+  public void remove (int node) {
+    int i = m_position[node];
+    if (i < 0)
+      return;
+
+    int last = m_heap[--m_size];
+    m_position[node] = -1;
+    if (i < m_size) {
+      m_heap[i] = last;
+      m_position[last] = i;
+      siftDown(siftUp(i));
+    }
+  }
+
+  /**
+   * Obtiene el nodo de menor prioridad sin sacarlo del montículo.
+   *
+   * @return Índice del nodo de menor prioridad.
+   */
+  public int peek () {
+    return m_heap[0];
+  }
+
+  /**
+   * Saca del montículo el nodo de menor prioridad.
+   *
+   * @return Índice del nodo extraído.
+   */
+  public int poll () {
+    int node = m_heap[0];
+    remove(node);
+    return node;
+  }
+
+  /**
+   * Obtiene la clave principal con la que se insertó un nodo.
+   *
+   * @param node
+   *          Índice del nodo.
+   * @return Clave principal de la prioridad del nodo.
+   */
+  public double getPrimaryKey (int node) {
+    return m_primary[node];
+  }
+
+  /**
+   * Obtiene la clave secundaria con la que se insertó un nodo.
+   *
+   * @param node
+   *          Índice del nodo.
+   * @return Clave secundaria de la prioridad del nodo.
+   */
+  public double getSecondaryKey (int node) {
+    return m_secondary[node];
+  }
+
+  /**
+   * Vacía el montículo. El coste es proporcional al número de nodos que
+   * contiene, no a su capacidad.
+   */
+  public void clear () {
+    for (int i = 0; i < m_size; i++)
+      m_position[m_heap[i]] = -1;
+    m_size = 0;
+  }
+
+  /**
+   * Compara la prioridad de dos nodos.
+   *
+   * @param a
+   *          Primer nodo.
+   * @param b
+   *          Segundo nodo.
+   * @return Si el primer nodo tiene estrictamente menos prioridad.
+   */
+  private boolean less (int a, int b) {
+    if (m_primary[a] != m_primary[b])
+      return m_primary[a] < m_primary[b];
+    return m_secondary[a] < m_secondary[b];
+  }
+
+  /**
+   * Sube un elemento del montículo mientras su padre tenga mayor prioridad.
+   *
+   * @param i
+   *          Posición del elemento.
+   * @return Posición final del elemento.
+   */
+  private int siftUp (int i) {
+    int node = m_heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!less(node, m_heap[parent]))
+        break;
+      m_heap[i] = m_heap[parent];
+      m_position[m_heap[i]] = i;
+      i = parent;
+    }
+    m_heap[i] = node;
+    m_position[node] = i;
+    return i;
+  }
+
+  /**
+   * Baja un elemento del montículo mientras alguno de sus hijos tenga menor
+   * prioridad.
+   *
+   * @param i
+   *          Posición del elemento.
+   */
+  private void siftDown (int i) {
+    int node = m_heap[i];
+    int half = m_size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < m_size && less(m_heap[child + 1], m_heap[child]))
+        child++;
+      if (!less(m_heap[child], node))
+        break;
+      m_heap[i] = m_heap[child];
+      m_position[m_heap[i]] = i;
+      i = child;
+    }
+    m_heap[i] = node;
+    m_position[node] = i;
+  }
+
+}
@@ -47,7 +47,9 @@ import javax.swing.SpinnerNumberModel;
 
 import es.ull.mazesolver.agent.AStarAgent;
 import es.ull.mazesolver.agent.Agent;
+import es.ull.mazesolver.agent.BidirectionalAgent;
 import es.ull.mazesolver.agent.DStarAgent;
+import es.ull.mazesolver.agent.HPAStarAgent;
 import es.ull.mazesolver.agent.HillClimbAgent;
 import es.ull.mazesolver.agent.PATableAgent;
 import es.ull.mazesolver.agent.RecursiveAgent;
@@ -57,6 +59,7 @@ import es.ull.mazesolver.agent.WallFollowerAgent;
 import es.ull.mazesolver.gui.configuration.AgentConfigurationPanel;
 import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.translations.Translations;
+import es.ull.mazesolver.util.SimulationEngine;
 
 /**
  * Interfaz gráfica para permitir al usuario elegir qué agente añadir al
@@ -71,6 +74,8 @@ public class AgentSelectorDialog extends JDialog {
     ALGORITHMS.put("Situation-Action Rules", SARulesAgent.class);
     ALGORITHMS.put("A*", AStarAgent.class);
     ALGORITHMS.put("D*", DStarAgent.class);
+    ALGORITHMS.put("HPA*", HPAStarAgent.class);
+    ALGORITHMS.put("Bidirectional A*", BidirectionalAgent.class);
     ALGORITHMS.put("Hill Climbing", HillClimbAgent.class);
     ALGORITHMS.put("Simulated Annealing", SimulatedAnnealingAgent.class);
     ALGORITHMS.put("Recursive Backtracking", RecursiveAgent.class);
@@ -246,7 +251,7 @@ public class AgentSelectorDialog extends JDialog {
   /**
    * Crea una instancia del agente seleccionado actualmente en el ComboBox.
    * Para que sea posible el agente tiene que tener un constructor que acepte
-   * exactamente un parámetro de tipo {@link es.ull.mazesolver.gui.environment.Environment}.
+   * exactamente un parámetro de tipo {@link es.ull.mazesolver.util.SimulationEngine}.
    *
    * @return Instancia del agente seleccionado.
    */
@@ -254,7 +259,8 @@ public class AgentSelectorDialog extends JDialog {
     Environment env = MainWindow.getInstance().getEnvironments().getSelectedEnvironment();
     String name = (String) m_agents.getSelectedItem();
     try {
-      Agent ag = ALGORITHMS.get(name).getConstructor(env.getClass()).newInstance(env);
+      Agent ag = ALGORITHMS.get(name).getConstructor(SimulationEngine.class)
+                                  .newInstance(env.getEngine());
       return ag;
     }
     catch (InstantiationException | IllegalAccessException | IllegalArgumentException
@@ -195,7 +195,7 @@ public class FileDialog {
     Agent ag = null;
     if (result == JFileChooser.APPROVE_OPTION) {
       File file = chooser.getSelectedFile();
-      ag = Agent.loadFile(file.getAbsolutePath(), env);
+      ag = Agent.loadFile(file.getAbsolutePath(), env.getEngine());
     }
 
     return ag;
@@ -846,16 +846,16 @@ public class MainWindow extends JFrame implements Observer, Translatable {
         for (int j = 0; j < envs.size(); j++) {
           Environment env = envs.get(j);
           if (env.getMaze() == maze) {
-            Agent env_winner = results.getWinner(env);
+            Agent env_winner = results.getWinner(env.getEngine());
             m_console.writeInfo("  == " + env.getTitle() + " ==");
-            m_console.writeInfo("* " + tr_sim.timeTakenFirst() + ": " + results.timeTakenFirst(env));
-            m_console.writeInfo("* " + tr_sim.timeTakenLast() + ": " + results.timeTakenLast(env));
+            m_console.writeInfo("* " + tr_sim.timeTakenFirst() + ": " + results.timeTakenFirst(env.getEngine()));
+            m_console.writeInfo("* " + tr_sim.timeTakenLast() + ": " + results.timeTakenLast(env.getEngine()));
             m_console.writeInfo("* " + tr_sim.winner() + ": "
                 + (env_winner != null? env_winner.getAgentName() : tr_sim.none()));
             m_console.writeInfo("");
             m_console.writeInfo("  * " + tr_sim.agentsDetail() + ":");
 
-            for (Map.Entry <Agent, Pair<Integer, Integer>> entry: results.getSteps(env).entrySet()) {
+            for (Map.Entry <Agent, Pair<Integer, Integer>> entry: results.getSteps(env.getEngine()).entrySet()) {
               Agent ag = entry.getKey();
               String finished =
                   maze.containsPoint(new Point(ag.getX(), ag.getY()))? tr_sim.notFinished() : tr_sim
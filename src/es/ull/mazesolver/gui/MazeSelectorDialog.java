@@ -50,6 +50,7 @@ import javax.swing.event.ChangeListener;
 import es.ull.mazesolver.maze.Maze;
 import es.ull.mazesolver.maze.MazeCreationAlgorithm;
 import es.ull.mazesolver.maze.algorithm.AldousBroder;
+import es.ull.mazesolver.maze.algorithm.Eller;
 import es.ull.mazesolver.maze.algorithm.HuntAndKill;
 import es.ull.mazesolver.maze.algorithm.Kruskal;
 import es.ull.mazesolver.maze.algorithm.Prim;
@@ -87,8 +88,8 @@ public class MazeSelectorDialog extends JDialog {
     super(parent);
 
     String [] algos =
-        {"Aldous Broder", "Hunt and Kill", "Kruskal", "Prim", "Recursive Backtracking",
-            "Recursive Division", "Wilson"};
+        {"Aldous Broder", "Eller", "Hunt and Kill", "Kruskal", "Prim",
+            "Recursive Backtracking", "Recursive Division", "Wilson"};
     m_algorithms = new JComboBox <String>(algos);
 
     buildInterface();
@@ -246,6 +247,9 @@ public class MazeSelectorDialog extends JDialog {
           case "Aldous Broder":
             alg = new AldousBroder(rows, columns);
             break;
+          case "Eller":
+            alg = new Eller(rows, columns);
+            break;
           case "Hunt and Kill":
             alg = new HuntAndKill(rows, columns);
             break;
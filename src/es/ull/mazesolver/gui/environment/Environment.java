@@ -36,7 +36,6 @@ import java.util.ArrayList;
 import com.tomtessier.scrollabledesktop.BaseInternalFrame;
 
 import es.ull.mazesolver.agent.Agent;
-import es.ull.mazesolver.gui.MainWindow;
 import es.ull.mazesolver.maze.Maze;
 import es.ull.mazesolver.maze.MazeCell;
 import es.ull.mazesolver.util.BlackboardManager;
@@ -44,13 +43,16 @@ import es.ull.mazesolver.util.Direction;
 import es.ull.mazesolver.util.InteractionMode;
 import es.ull.mazesolver.util.MessageManager;
 import es.ull.mazesolver.util.Pair;
+import es.ull.mazesolver.util.SimulationEngine;
 import es.ull.mazesolver.util.SimulationResults;
 
 /**
- * Una instancia de esta clase representa un entorno de ejecución, formado por
- * un laberinto y por un conjunto de agentes.
+ * Una instancia de esta clase representa la vista de un entorno de ejecución,
+ * formado por un laberinto y por un conjunto de agentes. El estado del entorno
+ * se almacena en un {@link SimulationEngine}, que esta clase observa para
+ * redibujarse cuando cambia.
  */
-public class Environment extends BaseInternalFrame {
+public class Environment extends BaseInternalFrame implements SimulationEngine.ChangeListener {
   private static final long serialVersionUID = 1L;
   private static final int WINDOW_BORDER_WIDTH = 11;
   private static final int WINDOW_BORDER_HEIGHT = 33;
@@ -59,13 +61,9 @@ public class Environment extends BaseInternalFrame {
   private static int s_instance = 0;
   private static Point s_start_pos = new Point();
 
-  private Maze m_maze;
-  private ArrayList <Agent> m_agents;
+  private SimulationEngine m_engine;
   private int m_selected, m_hovered;
 
-  private BlackboardManager m_blackboard_mgr;
-  private MessageManager m_message_mgr;
-
   private MouseListener m_agent_click = new MouseAdapter() {
     @Override
     public void mousePressed (MouseEvent e) {
@@ -87,9 +85,8 @@ public class Environment extends BaseInternalFrame {
       Agent ag = getSelectedAgent();
       if (ag != null) {
         Point grid_pos = EnvironmentPanel.screenCoordToGrid(e.getPoint());
-        if (m_maze.containsPoint(grid_pos)) {
-          ag.setPosition(grid_pos);
-          repaint();
+        if (getMaze().containsPoint(grid_pos)) {
+          m_engine.setAgentPosition(ag, grid_pos);
         }
       }
     }
@@ -105,20 +102,19 @@ public class Environment extends BaseInternalFrame {
         Point pos = selected.first;
         Direction dir = selected.second;
         Point adj = dir.movePoint(pos);
+        Maze maze = getMaze();
 
         // Si las dos celdas están dentro, se crea/eliminan las dos paredes que
         // las unen
-        if (m_maze.containsPoint(adj)) {
-          m_maze.get(pos.y, pos.x).toggleWall(dir);
-          m_maze.get(adj.y, adj.x).toggleWall(dir.getOpposite());
-        }
+        if (maze.containsPoint(adj))
+          maze.toggleWall(pos.y, pos.x, dir);
         // Si sólo una de las dos celdas está dentro hay que cambiar la posición
         // de la salida a ese punto
         else {
           if (dir.isVertical())
-            m_maze.setExit(pos.x, dir);
+            maze.setExit(pos.x, dir);
           else // Horizontal
-            m_maze.setExit(pos.y, dir);
+            maze.setExit(pos.y, dir);
         }
       }
 
@@ -140,7 +136,8 @@ public class Environment extends BaseInternalFrame {
     super(name, false, false, false, false);
     ++s_instance;
 
-    setMaze(maze);
+    m_engine = new SimulationEngine(maze);
+    m_engine.addChangeListener(this);
     setVisible(true);
 
     setLocation(s_start_pos);
@@ -148,10 +145,6 @@ public class Environment extends BaseInternalFrame {
     s_start_pos.y += WINDOWS_OFFSET;
 
     m_selected = m_hovered = -1;
-    m_agents = new ArrayList <Agent>();
-
-    m_blackboard_mgr = new BlackboardManager();
-    m_message_mgr = new MessageManager();
 
     moveToFront();
   }
@@ -215,7 +208,16 @@ public class Environment extends BaseInternalFrame {
    * @return Laberinto base del entorno.
    */
   public Maze getMaze () {
-    return m_maze;
+    return m_engine.getMaze();
+  }
+
+  /**
+   * Obtiene el motor de simulación que contiene el estado del entorno.
+   *
+   * @return Modelo del entorno.
+   */
+  public SimulationEngine getEngine () {
+    return m_engine;
   }
 
   /**
@@ -230,13 +232,7 @@ public class Environment extends BaseInternalFrame {
    *          Laberinto en el que se basa el entorno.
    */
   public void setMaze (Maze maze) {
-    if (maze != null) {
-      m_maze = maze;
-      repaint();
-    }
-    else
-      throw new IllegalArgumentException(
-          MainWindow.getTranslations().exception().invalidMaze());
+    m_engine.setMaze(maze);
   }
 
   /**
@@ -252,8 +248,7 @@ public class Environment extends BaseInternalFrame {
 
   /**
    * Este método permite saber lo que puede ver un agente si mira en una
-   * dirección específica. La versión en la clase principal no maneja agentes,
-   * por lo que debe ser sobrecargada para gestionarlos.
+   * dirección específica.
    *
    * @param pos
    *          Posición desde la que mirar.
@@ -261,24 +256,10 @@ public class Environment extends BaseInternalFrame {
    *          Dirección hacia la que mirar.
    * @return Lo que vería un agente en la posición especificada si mirara hacia
    *         la dirección indicada.
+   * @see SimulationEngine#look(Point, Direction)
    */
   public MazeCell.Vision look (Point pos, Direction dir) {
-    // Si el agente está fuera del laberinto, no dejamos que se mueva. De esta
-    // forma, cuando un agente sale del laberinto se queda quieto fuera del
-    // mismo y no vuelve a entrar ni se va lejos de la salida.
-    if (!m_maze.containsPoint(pos) || m_maze.get(pos.y, pos.x).hasWall(dir))
-      return MazeCell.Vision.WALL;
-
-    Point n_pos = dir.movePoint(pos);
-    if (!m_maze.containsPoint(n_pos))
-      return MazeCell.Vision.OFFLIMITS;
-
-    for (Agent ag: m_agents) {
-      if (ag.getX() == n_pos.getX() && ag.getY() == n_pos.getY())
-        return MazeCell.Vision.AGENT;
-    }
-
-    return MazeCell.Vision.EMPTY;
+    return m_engine.look(pos, dir);
   }
 
   /**
@@ -292,8 +273,7 @@ public class Environment extends BaseInternalFrame {
    * @return true si se puede y false si no.
    */
   public boolean movementAllowed (Point pos, Direction dir) {
-    MazeCell.Vision vision = look(pos, dir);
-    return vision == MazeCell.Vision.EMPTY || vision == MazeCell.Vision.OFFLIMITS;
+    return m_engine.movementAllowed(pos, dir);
   }
 
   /**
@@ -303,34 +283,7 @@ public class Environment extends BaseInternalFrame {
    *          Agente que se quiere añadir al entorno.
    */
   public void addAgent (Agent ag) {
-    if (ag == null)
-      throw new IllegalArgumentException(
-          MainWindow.getTranslations().exception().invalidAgent());
-
-    if (!m_agents.contains(ag)) {
-      ag.setEnvironment(this);
-
-      // Buscamos un hueco donde colocar el agente
-      loops:
-      for (int y = 0; y < m_maze.getHeight(); y++) {
-        for (int x = 0; x < m_maze.getWidth(); x++) {
-          boolean used = false;
-          for (Agent i: m_agents) {
-            if (i.getX() == x && i.getY() == y) {
-              used = true;
-              break;
-            }
-          }
-          if (!used) {
-            ag.setPosition(new Point(x, y));
-            break loops;
-          }
-        }
-      }
-
-      m_agents.add(ag);
-      repaint();
-    }
+    m_engine.addAgent(ag);
   }
 
   /**
@@ -342,16 +295,9 @@ public class Environment extends BaseInternalFrame {
   public void removeAgent (Agent ag) {
     // Si se encuentra el agente, se elimina de la lista de agentes y si estaba
     // seleccionado se quita el estado de selección
-    if (m_agents.contains(ag)) {
-      if (getSelectedAgent() == ag)
-        m_selected = -1;
-      m_agents.remove(ag);
-    }
-    else
-      throw new IllegalArgumentException(
-          MainWindow.getTranslations().exception().agentNotInEnvironment());
-
-    repaint();
+    if (getSelectedAgent() == ag)
+      m_selected = -1;
+    m_engine.removeAgent(ag);
   }
 
   /**
@@ -364,7 +310,7 @@ public class Environment extends BaseInternalFrame {
     if (m_selected == -1)
       return null;
     else
-      return m_agents.get(m_selected);
+      return m_engine.getAgent(m_selected);
   }
 
   /**
@@ -378,7 +324,7 @@ public class Environment extends BaseInternalFrame {
     if (m_hovered == -1)
       return null;
     else
-      return m_agents.get(m_hovered);
+      return m_engine.getAgent(m_hovered);
   }
 
   /**
@@ -389,11 +335,7 @@ public class Environment extends BaseInternalFrame {
    * @return Agente número 'index' dentro del entorno.
    */
   public Agent getAgent (int index) {
-    if (index < 0 || index >= m_agents.size())
-      throw new IllegalArgumentException(
-          MainWindow.getTranslations().exception().indexOutOfRange());
-
-    return m_agents.get(index);
+    return m_engine.getAgent(index);
   }
 
   /**
@@ -404,12 +346,7 @@ public class Environment extends BaseInternalFrame {
    * @return Copia de la lista de agentes dentro del entorno.
    */
   public ArrayList <Agent> getAgents () {
-    ArrayList <Agent> agents = new ArrayList <Agent>();
-
-    for (Agent i: m_agents)
-      agents.add((Agent) i.clone());
-
-    return agents;
+    return m_engine.getAgents();
   }
 
   /**
@@ -418,7 +355,7 @@ public class Environment extends BaseInternalFrame {
    * @return Número de agentes actualmente en el entorno.
    */
   public int getAgentCount () {
-    return m_agents.size();
+    return m_engine.getAgentCount();
   }
 
   /**
@@ -427,7 +364,7 @@ public class Environment extends BaseInternalFrame {
    * @return El gestor de pizarras del entorno.
    */
   public BlackboardManager getBlackboardManager () {
-    return m_blackboard_mgr;
+    return m_engine.getBlackboardManager();
   }
 
   /**
@@ -436,7 +373,7 @@ public class Environment extends BaseInternalFrame {
    * @return El gestor de mensajes del entorno.
    */
   public MessageManager getMessageManager () {
-    return m_message_mgr;
+    return m_engine.getMessageManager();
   }
 
   /**
@@ -451,36 +388,17 @@ public class Environment extends BaseInternalFrame {
    *         caso.
    */
   public boolean runStep (SimulationResults results) {
-    m_message_mgr.flushMessageQueues();
-    boolean ended = true;
-
-    for (Agent i: m_agents) {
-      // Si el agente ya salió del laberinto no lo movemos más, pero si no ha
-      // salido hacemos que calcule su siguiente movimiento
-      Direction dir;
-      if (m_maze.containsPoint(i.getPos())) {
-        dir = i.getNextMovement();
-        results.agentIterated(i);
-      }
-      else
-        dir = Direction.NONE;
-
-      // Restringimos el movimiento del agente para que no atraviese paredes
-      // u otros agentes independientemente de errores que se hayan podido
-      // cometer a la hora de programar a los agentes
-      if (movementAllowed(i.getPos(), dir)) {
-        i.doMovement(dir);
-        results.agentWalked(i);
-      }
-
-      if (m_maze.containsPoint(i.getPos()))
-        ended = false;
-      else
-        results.agentFinished(i);
-    }
+    return m_engine.runStep(results);
+  }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.util.SimulationEngine.ChangeListener#onChange(es.ull.mazesolver.util.SimulationEngine)
+   */
+  @Override
+  public void onChange (SimulationEngine engine) {
     repaint();
-    return ended;
   }
 
   /**
@@ -523,8 +441,8 @@ public class Environment extends BaseInternalFrame {
     Point maze_pos = EnvironmentPanel.screenCoordToGrid(mouse_pos);
     int ag_index = -1;
 
-    for (int i = 0; i < m_agents.size(); i++) {
-      Agent current = m_agents.get(i);
+    for (int i = 0; i < m_engine.getAgentCount(); i++) {
+      Agent current = m_engine.getAgent(i);
       if (current.getX() == maze_pos.getX() && current.getY() == maze_pos.getY()) {
         ag_index = i;
         break;
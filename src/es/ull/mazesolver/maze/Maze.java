@@ -27,11 +27,17 @@ package es.ull.mazesolver.maze;
 
 import java.awt.Point;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import es.ull.mazesolver.gui.MainWindow;
 import es.ull.mazesolver.util.Direction;
@@ -40,9 +46,31 @@ import es.ull.mazesolver.util.Direction;
  * Clase que representa un laberinto.
  */
 public class Maze {
-  private ArrayList <ArrayList <MazeCell>> m_maze;
+  // Formato binario de los ficheros de laberinto: "MAZE", versión, filas,
+  // columnas y coordenadas de la salida, seguidos de las celdas empaquetadas
+  private static final int FILE_MAGIC = 0x4D415A45;
+  private static final int FILE_VERSION = 1;
+  static final int FILE_HEADER_SIZE = 24;
+
+  private MazeGrid m_maze;
   private Point m_exit;
 
+  // Distancia real (en pasos) desde cada celda hasta la salida. Se calcula bajo
+  // demanda y se descarta cuando cambian las paredes o la salida.
+  private volatile int [] m_exit_distances;
+
+  // Grafo de pasillos contraídos, que se construye bajo demanda y se descarta
+  // en las mismas situaciones que las distancias a la salida
+  private volatile MazeGraph m_graph;
+
+  // División en clústeres, que a diferencia de lo anterior sólo se descarta
+  // por completo si cambia todo el laberinto o la salida
+  private volatile MazeClusters m_clusters;
+
+  // Número de modificaciones realizadas, para que quien guarde información
+  // derivada del laberinto fuera de él pueda saber cuándo descartarla
+  private volatile int m_modifications;
+
   /**
    * Crea un laberinto a partir de un algoritmo de generación de laberintos
    * ya inicializado.
@@ -60,6 +88,23 @@ public class Maze {
           MainWindow.getTranslations().exception().invalidMazeCreationAlgorithm());
   }
 
+  /**
+   * Crea un laberinto a partir de una rejilla de celdas ya construida.
+   *
+   * @param grid
+   *          Rejilla con las paredes del laberinto.
+   * @param exit
+   *          Posición de la salida, fuera de los límites de la rejilla.
+   */
+  public Maze (MazeGrid grid, Point exit) {
+    if (grid == null || exit == null)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().invalidMaze());
+
+    m_maze = grid;
+    m_exit = new Point(exit);
+  }
+
   /**
    * Crea un laberinto a partir de su versión serializada en un fichero.
    *
@@ -74,7 +119,11 @@ public class Maze {
   }
 
   /**
-   * Obtiene la celda situada en una posición concreta del laberinto.
+   * Obtiene la celda situada en una posición concreta del laberinto. La celda
+   * devuelta es una vista sobre el laberinto, por lo que sus modificaciones se
+   * aplican directamente sobre él. Tras modificar paredes de esta forma hay que
+   * llamar a {@link Maze#wallsChanged()} para descartar la información
+   * precalculada del laberinto.
    *
    * @param row
    *          Fila.
@@ -83,7 +132,34 @@ public class Maze {
    * @return Celda en la posición indicada.
    */
   public MazeCell get (int row, int column) {
-    return m_maze.get(row).get(column);
+    return m_maze.getCell(row, column);
+  }
+
+  /**
+   * Indica si hay un muro en un lado de una celda del laberinto. Es
+   * equivalente a {@code get(row, column).hasWall(dir)} pero no crea ningún
+   * objeto intermedio.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param dir
+   *          Lado de la celda que se quiere consultar.
+   * @return Si hay un muro en esa dirección o no.
+   */
+  public boolean hasWall (int row, int column, Direction dir) {
+    return m_maze.hasWall(row, column, dir);
+  }
+
+  /**
+   * Obtiene la rejilla compacta en la que se almacenan las paredes del
+   * laberinto.
+   *
+   * @return Rejilla del laberinto.
+   */
+  public MazeGrid getGrid () {
+    return m_maze;
   }
 
   /**
@@ -97,7 +173,70 @@ public class Maze {
    *          Celda que se quiere introducir.
    */
   public void set (int row, int column, MazeCell cell) {
-    m_maze.get(row).set(column, cell);
+    m_maze.setWalls(row, column, cell.getWalls());
+    cellChanged(row, column);
+  }
+
+  /**
+   * Cambia el estado de una pared del laberinto. Si la celda adyacente en esa
+   * dirección está dentro del laberinto, también se modifica su pared, de forma
+   * que ambas celdas quedan conectadas o separadas.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param dir
+   *          Lado de la celda que se quiere modificar.
+   */
+  public void toggleWall (int row, int column, Direction dir) {
+    Point adj = dir.movePoint(new Point(column, row));
+    m_maze.toggleWall(row, column, dir);
+    if (containsPoint(adj))
+      m_maze.toggleWall(adj.y, adj.x, dir.getOpposite());
+
+    cellChanged(row, column);
+  }
+
+  /**
+   * Notifica al laberinto de que sus paredes han sido modificadas desde fuera
+   * de esta clase, para que descarte la información que tenga precalculada.
+   */
+  public void wallsChanged () {
+    m_modifications++;
+    m_exit_distances = null;
+    m_graph = null;
+    m_clusters = null;
+  }
+
+  /**
+   * Descarta la información precalculada afectada por un cambio en las paredes
+   * de una celda.
+   *
+   * @param row
+   *          Fila de la celda modificada.
+   * @param column
+   *          Columna de la celda modificada.
+   */
+  private void cellChanged (int row, int column) {
+    m_modifications++;
+    m_exit_distances = null;
+    m_graph = null;
+
+    MazeClusters clusters = m_clusters;
+    if (clusters != null)
+      clusters.invalidate(row, column);
+  }
+
+  /**
+   * Obtiene el número de modificaciones notificadas sobre las paredes o la
+   * salida del laberinto. Sirve para detectar si la información que se ha
+   * calculado a partir del laberinto sigue siendo válida.
+   *
+   * @return Contador de modificaciones del laberinto.
+   */
+  public int getModificationCount () {
+    return m_modifications;
   }
 
   /**
@@ -106,7 +245,7 @@ public class Maze {
    * @return Anchura (en celdas) del laberinto.
    */
   public int getWidth () {
-    return m_maze.get(0).size();
+    return m_maze.getColumns();
   }
 
   /**
@@ -115,7 +254,7 @@ public class Maze {
    * @return Altura (en celdas) del laberinto.
    */
   public int getHeight () {
-    return m_maze.size();
+    return m_maze.getRows();
   }
 
   /**
@@ -141,13 +280,13 @@ public class Maze {
 
     // Tapamos la salida anterior antes de modificar su posición
     if (m_exit.x < 0)
-      m_maze.get(m_exit.y).get(0).setWall(Direction.LEFT);
+      m_maze.setWall(m_exit.y, 0, Direction.LEFT);
     else if (m_exit.x >= getWidth())
-      m_maze.get(m_exit.y).get(getWidth() - 1).setWall(Direction.RIGHT);
+      m_maze.setWall(m_exit.y, getWidth() - 1, Direction.RIGHT);
     else if (m_exit.y < 0)
-      m_maze.get(0).get(m_exit.x).setWall(Direction.UP);
+      m_maze.setWall(0, m_exit.x, Direction.UP);
     else if (m_exit.y >= getHeight())
-      m_maze.get(getHeight() - 1).get(m_exit.x).setWall(Direction.DOWN);
+      m_maze.setWall(getHeight() - 1, m_exit.x, Direction.DOWN);
 
     // Modificamos la salida del laberinto y abrimos la pared
     switch (dir) {
@@ -167,8 +306,9 @@ public class Maze {
         break;
     }
 
-    m_maze.get(m_exit.y).get(m_exit.x).unsetWall(dir);
+    m_maze.unsetWall(m_exit.y, m_exit.x, dir);
     m_exit.setLocation(dir.movePoint(m_exit));
+    wallsChanged();
   }
 
   /**
@@ -180,6 +320,100 @@ public class Maze {
     return new Point(m_exit);
   }
 
+  /**
+   * Obtiene la coordenada X de la salida del laberinto sin crear una copia de
+   * su posición.
+   *
+   * @return Columna en la que se encuentra la salida al laberinto.
+   */
+  public int getExitX () {
+    return m_exit.x;
+  }
+
+  /**
+   * Obtiene la coordenada Y de la salida del laberinto sin crear una copia de
+   * su posición.
+   *
+   * @return Fila en la que se encuentra la salida al laberinto.
+   */
+  public int getExitY () {
+    return m_exit.y;
+  }
+
+  /**
+   * Obtiene la distancia real hasta la salida desde cada celda del laberinto,
+   * medida como el número de pasos del camino más corto sin tener en cuenta a
+   * los agentes. Se calcula mediante una búsqueda en anchura desde la salida la
+   * primera vez que se solicita y se comparte hasta que el laberinto cambia.
+   *
+   * @return Array indexado por {@code fila * anchura + columna} con la
+   *         distancia de cada celda a la salida, o -1 para las celdas desde las
+   *         que no se puede salir. No se debe modificar.
+   */
+  public int [] getExitDistances () {
+    int [] distances = m_exit_distances;
+    if (distances == null) {
+      synchronized (this) {
+        distances = m_exit_distances;
+        if (distances == null)
+          m_exit_distances = distances = computeExitDistances();
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Obtiene la distancia real desde una celda hasta la salida del laberinto.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @return Número de pasos hasta la salida o -1 si no se puede salir.
+   * @see Maze#getExitDistances()
+   */
+  public int getExitDistance (int row, int column) {
+    return getExitDistances()[row * getWidth() + column];
+  }
+
+  /**
+   * Obtiene el grafo en el que se contraen los pasillos del laberinto. Se
+   * construye la primera vez que se solicita y se reutiliza hasta que cambian
+   * las paredes o la salida.
+   *
+   * @return Grafo de pasillos del laberinto. No se debe modificar.
+   */
+  public MazeGraph getGraph () {
+    MazeGraph graph = m_graph;
+    if (graph == null) {
+      synchronized (this) {
+        graph = m_graph;
+        if (graph == null)
+          m_graph = graph = new MazeGraph(this);
+      }
+    }
+    return graph;
+  }
+
+  /**
+   * Obtiene la división del laberinto en clústeres para la búsqueda jerárquica
+   * de caminos. Se reutiliza mientras no cambie la salida o todo el laberinto;
+   * los cambios en celdas concretas sólo descartan los clústeres afectados.
+   *
+   * @return División en clústeres del laberinto.
+   */
+  public MazeClusters getClusters () {
+    MazeClusters clusters = m_clusters;
+    if (clusters == null) {
+      synchronized (this) {
+        clusters = m_clusters;
+        if (clusters == null)
+          m_clusters = clusters = new MazeClusters(this);
+      }
+    }
+    return clusters;
+  }
+
   /**
    * Determina si el punto se encuentra dentro del laberinto o no.
    *
@@ -192,8 +426,14 @@ public class Maze {
   }
 
   /**
-   * Carga una instancia de laberinto de un fichero que contiene una instancia
-   * de esta clase serializada.
+   * Carga un laberinto de un fichero. El formato binario se proyecta en memoria
+   * en lugar de leerse, por lo que el tiempo de carga no depende del tamaño del
+   * laberinto y las celdas sólo se leen de disco a medida que se usan. Los
+   * cambios hechos sobre el laberinto cargado no se escriben en el fichero,
+   * sino que provocan que se copie a memoria.
+   *
+   * También se admiten los ficheros guardados por versiones anteriores, que
+   * contienen las celdas del laberinto serializadas.
    *
    * @param fileName
    *          Nombre del fichero del que cargar el laberinto.
@@ -201,24 +441,51 @@ public class Maze {
    *           Cuando no se encuentra el fichero, no se puede abrir para su
    *           lectura o no contiene un laberinto válido.
    */
-  @SuppressWarnings ("unchecked")
   public void loadFile (String fileName) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(fileName, "r");
     try {
-      FileInputStream fileIn = new FileInputStream(fileName);
-      ObjectInputStream in = new ObjectInputStream(fileIn);
-      m_maze = (ArrayList <ArrayList <MazeCell>>) in.readObject();
-      m_exit = (Point) in.readObject();
-      in.close();
-      fileIn.close();
+      FileChannel channel = file.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0)
+        ;
+
+      if (header.position() < 4 || header.getInt(0) != FILE_MAGIC) {
+        loadLegacyFile(fileName);
+        return;
+      }
+
+      if (header.hasRemaining() || header.getInt(4) != FILE_VERSION)
+        throw new IOException(MainWindow.getTranslations().exception().invalidMaze());
+
+      int rows = header.getInt(8), columns = header.getInt(12);
+      long size = (long) rows * ((columns + 1) / 2);
+      if (rows <= 0 || columns <= 0 || size > Integer.MAX_VALUE ||
+          channel.size() < FILE_HEADER_SIZE + size)
+        throw new IOException(MainWindow.getTranslations().exception().invalidMaze());
+
+      Point exit = new Point(header.getInt(16), header.getInt(20));
+      if (!isValidExit(exit, rows, columns))
+        throw new IOException(MainWindow.getTranslations().exception().invalidMaze());
+
+      ByteBuffer data = channel.map(MapMode.READ_ONLY, FILE_HEADER_SIZE, size);
+      m_maze = new MazeGrid(rows, columns, data);
+      m_exit = exit;
+      wallsChanged();
     }
-    catch (ClassNotFoundException c) {
-      throw new IOException(c);
+    finally {
+      file.close();
     }
   }
 
   /**
-   * Guarda la actual instancia de la clase {@link Maze} en un fichero mediante
-   * su serialización.
+   * Guarda el laberinto en un fichero en formato binario. Este formato consiste
+   * en una cabecera con un identificador, la versión del formato, el número de
+   * filas y columnas y la posición de la salida, seguida de las celdas
+   * empaquetadas tal y como las almacena {@link MazeGrid}.
+   *
+   * El fichero se escribe primero con un nombre temporal y después se renombra,
+   * de manera que se puede sobreescribir el fichero del que se cargó el propio
+   * laberinto.
    *
    * @param fileName
    *          Nombre del fichero donde guardar el laberinto.
@@ -227,12 +494,148 @@ public class Maze {
    *           escritura en el mismo.
    */
   public void saveFile (String fileName) throws IOException {
-    FileOutputStream fileOut = new FileOutputStream(fileName);
-    ObjectOutputStream out = new ObjectOutputStream(fileOut);
-    out.writeObject(m_maze);
-    out.writeObject(m_exit);
-    out.close();
-    fileOut.close();
+    MazeFileWriter writer = new MazeFileWriter(fileName);
+    writer.begin(getHeight(), getWidth());
+
+    try {
+      writer.writeRows(m_maze, getHeight());
+    }
+    catch (IOException e) {
+      writer.abort();
+      throw e;
+    }
+
+    writer.end(m_exit);
+  }
+
+  /**
+   * Crea la cabecera de un fichero de laberinto en formato binario.
+   *
+   * @param rows
+   *          Número de filas del laberinto.
+   * @param columns
+   *          Número de columnas del laberinto.
+   * @param exit
+   *          Posición de la salida.
+   * @return Buffer preparado para escribir la cabecera.
+   */
+  static ByteBuffer createFileHeader (int rows, int columns, Point exit) {
+    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+    header.putInt(FILE_MAGIC).putInt(FILE_VERSION);
+    header.putInt(rows).putInt(columns);
+    header.putInt(exit.x).putInt(exit.y);
+    header.flip();
+    return header;
+  }
+
+  /**
+   * Carga un laberinto de un fichero con el formato antiguo, en el que se
+   * serializaba la matriz de celdas seguida de la posición de la salida.
+   *
+   * @param fileName
+   *          Nombre del fichero del que cargar el laberinto.
+   * @throws IOException
+   *           Cuando el fichero no se puede leer o no contiene un laberinto
+   *           válido.
+   */
+  @SuppressWarnings ("unchecked")
+  private void loadLegacyFile (String fileName) throws IOException {
+    FileInputStream fileIn = new FileInputStream(fileName);
+    try {
+      ObjectInputStream in = new LegacyInputStream(fileIn);
+      ArrayList <ArrayList <MazeCell>> cells = (ArrayList <ArrayList <MazeCell>>) in.readObject();
+      Point exit = (Point) in.readObject();
+
+      if (cells.isEmpty() || cells.get(0).isEmpty() ||
+          !isValidExit(exit, cells.size(), cells.get(0).size()))
+        throw new IOException(MainWindow.getTranslations().exception().invalidMaze());
+
+      MazeGrid grid = new MazeGrid(cells.size(), cells.get(0).size());
+      for (int y = 0; y < cells.size(); y++)
+        for (int x = 0; x < cells.get(y).size(); x++)
+          grid.setWalls(y, x, cells.get(y).get(x).getWalls());
+
+      m_maze = grid;
+      m_exit = exit;
+      wallsChanged();
+    }
+    catch (ClassNotFoundException | ClassCastException c) {
+      throw new IOException(c);
+    }
+    finally {
+      fileIn.close();
+    }
+  }
+
+  /**
+   * Comprueba que una salida leída de un fichero está fuera del laberinto y
+   * junto a exactamente una de las celdas del borde, como las que crea
+   * {@link Maze#setExit(int, Direction)}.
+   *
+   * @param exit
+   *          Posición de la salida.
+   * @param rows
+   *          Número de filas del laberinto.
+   * @param columns
+   *          Número de columnas del laberinto.
+   * @return Si la salida es válida para un laberinto de ese tamaño.
+   */
+  private static boolean isValidExit (Point exit, int rows, int columns) {
+    if (exit == null)
+      return false;
+
+    boolean x_inside = exit.x >= 0 && exit.x < columns;
+    boolean y_inside = exit.y >= 0 && exit.y < rows;
+    boolean x_border = exit.x == -1 || exit.x == columns;
+    boolean y_border = exit.y == -1 || exit.y == rows;
+    return (x_border && y_inside) || (y_border && x_inside);
+  }
+
+  /**
+   * Calcula mediante una búsqueda en anchura la distancia desde cada celda
+   * hasta la salida del laberinto.
+   *
+   * @return Distancia de cada celda a la salida, o -1 si no es alcanzable.
+   */
+  private int [] computeExitDistances () {
+    int width = getWidth(), height = getHeight();
+    int [] distances = new int [width * height];
+    int [] queue = new int [width * height];
+    int head = 0, tail = 0;
+    Arrays.fill(distances, -1);
+
+    // La celda de entrada es la que está junto a la salida y no tiene pared
+    // en esa dirección
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      Point cell = dir.movePoint(m_exit);
+      if (containsPoint(cell) && !m_maze.hasWall(cell.y, cell.x, dir.getOpposite())) {
+        distances[cell.y * width + cell.x] = 1;
+        queue[tail++] = cell.y * width + cell.x;
+      }
+    }
+
+    while (head < tail) {
+      int cell = queue[head++];
+      int x = cell % width, y = cell / width;
+
+      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+        Direction dir = Direction.fromIndex(i);
+        if (m_maze.hasWall(y, x, dir))
+          continue;
+
+        int nx = x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+        int ny = y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+        if (nx >= 0 && ny >= 0 && nx < width && ny < height
+            && distances[ny * width + nx] == -1
+            && !m_maze.hasWall(ny, nx, dir.getOpposite())) {
+          distances[ny * width + nx] = distances[cell] + 1;
+          queue[tail++] = ny * width + nx;
+        }
+      }
+    }
+
+    return distances;
   }
 
   /**
@@ -264,4 +667,26 @@ public class Maze {
   public static int perfectMazeEdges (int rows, int columns) {
     return (rows * columns) - 1;
   }
+
+  /**
+   * Flujo de entrada para los ficheros en el formato antiguo, que sólo permite
+   * deserializar las clases que forman parte de ese formato.
+   */
+  private static class LegacyInputStream extends ObjectInputStream {
+    public LegacyInputStream (InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class <?> resolveClass (ObjectStreamClass desc) throws IOException,
+        ClassNotFoundException {
+      String name = desc.getName();
+      if (!name.equals(ArrayList.class.getName()) &&
+          !name.equals(MazeCell.class.getName()) &&
+          !name.equals(Point.class.getName()))
+        throw new InvalidClassException(name);
+
+      return super.resolveClass(desc);
+    }
+  }
 }
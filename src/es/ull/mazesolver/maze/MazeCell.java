@@ -30,13 +30,18 @@ import java.io.Serializable;
 import es.ull.mazesolver.util.Direction;
 
 /**
- * Clase que representa una celda del laberinto.
+ * Clase que representa una celda del laberinto. Puede ser una celda
+ * independiente o una vista sobre una posición de un {@link MazeGrid}, en cuyo
+ * caso las modificaciones se aplican directamente sobre la rejilla.
  */
 public class MazeCell implements Serializable {
   private static final long serialVersionUID = 4328443829621010840L;
 
   private short m_cell;
 
+  private transient MazeGrid m_grid;
+  private transient int m_row, m_column;
+
   /**
    * Constructor por defecto. La celda creada está rodeada de muros.
    */
@@ -47,6 +52,22 @@ public class MazeCell implements Serializable {
     m_cell |= Direction.LEFT.val;
   }
 
+  /**
+   * Crea una vista sobre una celda de una rejilla compacta.
+   *
+   * @param grid
+   *          Rejilla que contiene la celda.
+   * @param row
+   *          Fila de la celda.
+   * @param column
+   *          Columna de la celda.
+   */
+  MazeCell (MazeGrid grid, int row, int column) {
+    m_grid = grid;
+    m_row = row;
+    m_column = column;
+  }
+
   /**
    * Cambia el estado de la dirección especificada. Si no había muro, ahora lo
    * hay y viceversa.
@@ -68,7 +89,7 @@ public class MazeCell implements Serializable {
    *          Lado de la celda que se quiere modificar.
    */
   public void setWall (Direction dir) {
-    m_cell |= dir.val;
+    setWalls(getWalls() | dir.val);
   }
 
   /**
@@ -78,14 +99,14 @@ public class MazeCell implements Serializable {
    *          Lado de la celda que se quiere modificar.
    */
   public void unsetWall (Direction dir) {
-    m_cell &= ~dir.val;
+    setWalls(getWalls() & ~dir.val);
   }
 
   /**
    * Elimina todas las paredes de la celda.
    */
   public void removeWalls () {
-    m_cell = 0;
+    setWalls(0);
   }
 
   /**
@@ -96,7 +117,44 @@ public class MazeCell implements Serializable {
    * @return Si hay una celda en esa dirección o no.
    */
   public boolean hasWall (Direction dir) {
-    return (m_cell & dir.val) != 0;
+    return (getWalls() & dir.val) != 0;
+  }
+
+  /**
+   * Obtiene el campo de bits con las paredes de la celda.
+   *
+   * @return Paredes de la celda como combinación de {@link Direction#val}.
+   */
+  public int getWalls () {
+    return m_grid != null? m_grid.getWalls(m_row, m_column) : m_cell;
+  }
+
+  /**
+   * Sustituye todas las paredes de la celda.
+   *
+   * @param walls
+   *          Paredes de la celda como combinación de {@link Direction#val}.
+   */
+  public void setWalls (int walls) {
+    if (m_grid != null)
+      m_grid.setWalls(m_row, m_column, walls);
+    else
+      m_cell = (short) walls;
+  }
+
+  /**
+   * Sustituye las vistas sobre una rejilla por celdas independientes al
+   * serializarlas, ya que la rejilla no forma parte del objeto serializado.
+   *
+   * @return La celda que se debe serializar en lugar de ésta.
+   */
+  private Object writeReplace () {
+    if (m_grid == null)
+      return this;
+
+    MazeCell copy = new MazeCell();
+    copy.setWalls(getWalls());
+    return copy;
   }
 
   /**
@@ -0,0 +1,419 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file MazeClusters.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.maze;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * División de un laberinto en bloques cuadrados (clústeres) para la búsqueda
+ * jerárquica de caminos. Cada clúster tiene un conjunto de entradas, que son
+ * sus celdas conectadas directamente con una celda de otro clúster o con la
+ * salida, y la distancia entre cada par de entradas sin salir del clúster.
+ * <br><br>
+ * La información de cada clúster se calcula la primera vez que se necesita, y
+ * cuando cambian las paredes de una celda sólo se descartan el clúster de esa
+ * celda y los de sus vecinas, de manera que en laberintos muy grandes sólo se
+ * procesa la parte que realmente se recorre. Se debe obtener mediante
+ * {@link Maze#getClusters()}.
+ */
+public class MazeClusters {
+  /**
+   * Número de filas y columnas de celdas de cada clúster.
+   */
+  public static final int CLUSTER_SIZE = 32;
+
+  /**
+   * Cota superior del número de entradas de un clúster, que como mucho son
+   * todas las celdas de su contorno.
+   */
+  public static final int MAX_ENTRANCES = 4 * CLUSTER_SIZE;
+
+  private final Maze m_maze;
+  private final int m_width, m_height;
+  private final int m_cluster_columns;
+
+  // La salida no puede cambiar sin que se cree una nueva división
+  private final int m_exit_x, m_exit_y;
+
+  // Información calculada de cada clúster, o null si aún no se ha calculado
+  private final Cluster [] m_clusters;
+
+  // Memoria de trabajo de compute(), protegida por su sincronización
+  private final SearchBuffer m_compute_buffer = new SearchBuffer();
+
+  /**
+   * Memoria de trabajo de las búsquedas dentro de un clúster. Como la división
+   * en clústeres se comparte entre todos los agentes del laberinto, cada uno
+   * debe tener la suya y reutilizarla entre llamadas, sin compartirla entre
+   * hilos.
+   */
+  public static class SearchBuffer {
+    private final int [] distances = new int [CLUSTER_SIZE * CLUSTER_SIZE];
+    private final int [] queue = new int [CLUSTER_SIZE * CLUSTER_SIZE];
+    private final byte [] parents = new byte [CLUSTER_SIZE * CLUSTER_SIZE];
+  }
+
+  /**
+   * Entradas de un clúster (índices de celda en orden creciente) y distancias
+   * entre ellas. Al ser sus campos finales, se puede leer desde cualquier hilo
+   * sin sincronización una vez obtenido.
+   */
+  private static class Cluster {
+    public final int [] entrances;
+    public final int [] distances;
+
+    public Cluster (int [] entrances, int [] distances) {
+      this.entrances = entrances;
+      this.distances = distances;
+    }
+  }
+
+  /**
+   * Crea la división en clústeres de un laberinto sin calcular aún ninguno.
+   *
+   * @param maze
+   *          Laberinto a dividir.
+   */
+  MazeClusters (Maze maze) {
+    m_maze = maze;
+    m_width = maze.getWidth();
+    m_height = maze.getHeight();
+    m_cluster_columns = (m_width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+
+    Point exit = maze.getExit();
+    m_exit_x = exit.x;
+    m_exit_y = exit.y;
+
+    m_clusters = new Cluster [m_cluster_columns * ((m_height + CLUSTER_SIZE - 1) / CLUSTER_SIZE)];
+  }
+
+  /**
+   * @return Número de clústeres en los que está dividido el laberinto.
+   */
+  public int getClusterCount () {
+    return m_clusters.length;
+  }
+
+  /**
+   * Obtiene el clúster al que pertenece una celda.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @return Índice del clúster.
+   */
+  public int getCluster (int row, int column) {
+    return (row / CLUSTER_SIZE) * m_cluster_columns + column / CLUSTER_SIZE;
+  }
+
+  /**
+   * Obtiene las entradas de un clúster.
+   *
+   * @param cluster
+   *          Índice del clúster.
+   * @return Índices de celda ({@code fila * anchura + columna}) de las entradas,
+   *         en orden creciente. No se debe modificar.
+   */
+  public int [] getEntrances (int cluster) {
+    return build(cluster).entrances;
+  }
+
+  /**
+   * Busca una celda entre las entradas de su clúster.
+   *
+   * @param cluster
+   *          Índice del clúster.
+   * @param cell
+   *          Índice de la celda.
+   * @return Posición de la celda dentro de las entradas del clúster, o un valor
+   *         negativo si no es una entrada.
+   */
+  public int getEntranceIndex (int cluster, int cell) {
+    return Arrays.binarySearch(getEntrances(cluster), cell);
+  }
+
+  /**
+   * Obtiene la distancia entre 2 entradas de un clúster sin salir de él.
+   *
+   * @param cluster
+   *          Índice del clúster.
+   * @param from
+   *          Posición de la entrada de origen.
+   * @param to
+   *          Posición de la entrada de destino.
+   * @return Número de pasos entre ambas entradas, o -1 si no están conectadas
+   *         dentro del clúster.
+   */
+  public int getDistance (int cluster, int from, int to) {
+    Cluster data = build(cluster);
+    return data.distances[from * data.entrances.length + to];
+  }
+
+  /**
+   * Calcula la distancia desde una celda cualquiera hasta las entradas de su
+   * clúster sin salir de él.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param distances
+   *          Array de al menos {@link #MAX_ENTRANCES} elementos en el que se
+   *          guarda la distancia hasta cada entrada del clúster, en el mismo
+   *          orden que {@link MazeClusters#getEntrances(int)}, o -1 si no es
+   *          alcanzable.
+   * @param buffer
+   *          Memoria de trabajo de la búsqueda.
+   * @return Número de entradas del clúster.
+   */
+  public int getEntranceDistances (int row, int column, int [] distances, SearchBuffer buffer) {
+    int cluster = getCluster(row, column);
+    int [] entrances = getEntrances(cluster);
+    int [] local = search(cluster, row * m_width + column, buffer, false);
+
+    for (int i = 0; i < entrances.length; i++)
+      distances[i] = local[toLocal(cluster, entrances[i])];
+    return entrances.length;
+  }
+
+  /**
+   * Calcula el camino más corto entre 2 celdas de un mismo clúster sin salir
+   * de él.
+   *
+   * @param from
+   *          Índice de la celda de origen.
+   * @param to
+   *          Índice de la celda de destino.
+   * @param path
+   *          Lista en la que añadir los movimientos del camino.
+   * @param buffer
+   *          Memoria de trabajo de la búsqueda.
+   * @return Si existe camino entre las 2 celdas dentro del clúster.
+   */
+  public boolean findPath (int from, int to, List <Direction> path, SearchBuffer buffer) {
+    int cluster = getCluster(from / m_width, from % m_width);
+    int [] local = search(cluster, from, buffer, true);
+    byte [] parents = buffer.parents;
+
+    int target = toLocal(cluster, to);
+    if (local[target] == -1)
+      return false;
+
+    // Los movimientos se recuperan desde el destino hacia atrás
+    int first = path.size();
+    int x = to % m_width, y = to / m_width;
+    for (int steps = local[target]; steps > 0; steps--) {
+      Direction dir = Direction.fromIndex(parents[toLocal(cluster, y * m_width + x)]);
+      path.add(dir);
+      x -= dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0;
+      y -= dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0;
+    }
+
+    for (int i = first, j = path.size() - 1; i < j; i++, j--)
+      path.set(i, path.set(j, path.get(i)));
+    return true;
+  }
+
+  /**
+   * Indica si se puede pasar de una celda a la adyacente en una dirección.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param dir
+   *          Dirección del paso.
+   * @return Si no hay pared entre ambas celdas y la adyacente está dentro del
+   *         laberinto o es la salida.
+   */
+  public boolean isOpen (int row, int column, Direction dir) {
+    MazeGrid grid = m_maze.getGrid();
+    if (grid.hasWall(row, column, dir))
+      return false;
+
+    int nx = column + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+    int ny = row + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+    if (nx >= 0 && ny >= 0 && nx < m_width && ny < m_height)
+      return !grid.hasWall(ny, nx, dir.getOpposite());
+
+    return m_exit_x == nx && m_exit_y == ny;
+  }
+
+  /**
+   * Descarta la información de los clústeres afectados por un cambio en las
+   * paredes de una celda: el suyo y los de las celdas adyacentes.
+   *
+   * @param row
+   *          Fila de la celda modificada.
+   * @param column
+   *          Columna de la celda modificada.
+   */
+  synchronized void invalidate (int row, int column) {
+    for (int i = 0; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      int x = column + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+      int y = row + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+      if (x >= 0 && y >= 0 && x < m_width && y < m_height) {
+        m_clusters[getCluster(y, x)] = null;
+      }
+    }
+  }
+
+  /**
+   * Obtiene las entradas y distancias de un clúster, calculándolas si es
+   * necesario.
+   *
+   * @param cluster
+   *          Índice del clúster.
+   * @return Información del clúster.
+   */
+  private Cluster build (int cluster) {
+    Cluster data = m_clusters[cluster];
+    return data != null? data : compute(cluster);
+  }
+
+  /**
+   * Calcula las entradas y distancias de un clúster si ningún otro hilo lo ha
+   * hecho ya.
+   *
+   * @param cluster
+   *          Índice del clúster.
+   * @return Información del clúster.
+   */
+  private synchronized Cluster compute (int cluster) {
+    if (m_clusters[cluster] == null) {
+      int x0 = (cluster % m_cluster_columns) * CLUSTER_SIZE;
+      int y0 = (cluster / m_cluster_columns) * CLUSTER_SIZE;
+      int x1 = Math.min(x0 + CLUSTER_SIZE, m_width), y1 = Math.min(y0 + CLUSTER_SIZE, m_height);
+
+      // Las entradas sólo pueden estar en el contorno del clúster
+      int [] entrances = new int [MAX_ENTRANCES];
+      int count = 0;
+      for (int y = y0; y < y1; y++) {
+        for (int x = x0; x < x1; x++) {
+          if (y != y0 && y != y1 - 1 && x != x0 && x != x1 - 1)
+            continue;
+
+          for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+            Direction dir = Direction.fromIndex(i);
+            int nx = x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+            int ny = y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+            if ((nx < x0 || ny < y0 || nx >= x1 || ny >= y1) && isOpen(y, x, dir)) {
+              entrances[count++] = y * m_width + x;
+              break;
+            }
+          }
+        }
+      }
+      entrances = Arrays.copyOf(entrances, count);
+
+      int [] distances = new int [count * count];
+      for (int i = 0; i < count; i++) {
+        int [] local = search(cluster, entrances[i], m_compute_buffer, false);
+        for (int j = 0; j < count; j++)
+          distances[i * count + j] = local[toLocal(cluster, entrances[j])];
+      }
+
+      m_clusters[cluster] = new Cluster(entrances, distances);
+    }
+
+    return m_clusters[cluster];
+  }
+
+  /**
+   * Búsqueda en anchura desde una celda limitada a su clúster.
+   *
+   * @param cluster
+   *          Índice del clúster.
+   * @param start
+   *          Índice de la celda de partida.
+   * @param buffer
+   *          Memoria de trabajo de la búsqueda.
+   * @param parents
+   *          Si se debe guardar en el buffer el índice de la dirección con la
+   *          que se llega a cada celda.
+   * @return Distancia a cada celda del clúster (en coordenadas locales), o -1
+   *         si no es alcanzable. Es parte del buffer, por lo que sólo es válida
+   *         hasta la siguiente búsqueda que lo utilice.
+   */
+  private int [] search (int cluster, int start, SearchBuffer buffer, boolean parents) {
+    int x0 = (cluster % m_cluster_columns) * CLUSTER_SIZE;
+    int y0 = (cluster / m_cluster_columns) * CLUSTER_SIZE;
+    int x1 = Math.min(x0 + CLUSTER_SIZE, m_width), y1 = Math.min(y0 + CLUSTER_SIZE, m_height);
+
+    int [] distances = buffer.distances;
+    int [] queue = buffer.queue;
+    int head = 0, tail = 0;
+    Arrays.fill(distances, -1);
+
+    distances[toLocal(cluster, start)] = 0;
+    queue[tail++] = start;
+    while (head < tail) {
+      int cell = queue[head++];
+      int x = cell % m_width, y = cell / m_width;
+      int dist = distances[toLocal(cluster, cell)];
+
+      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+        Direction dir = Direction.fromIndex(i);
+        int nx = x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+        int ny = y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+        if (nx < x0 || ny < y0 || nx >= x1 || ny >= y1)
+          continue;
+
+        int next = ny * m_width + nx, local = toLocal(cluster, next);
+        if (distances[local] == -1 && isOpen(y, x, dir)) {
+          distances[local] = dist + 1;
+          if (parents)
+            buffer.parents[local] = (byte) i;
+          queue[tail++] = next;
+        }
+      }
+    }
+
+    return distances;
+  }
+
+  /**
+   * Transforma un índice de celda en su posición dentro de su clúster.
+   *
+   * @param cluster
+   *          Índice del clúster que contiene la celda.
+   * @param cell
+   *          Índice de la celda.
+   * @return Posición local de la celda.
+   */
+  private int toLocal (int cluster, int cell) {
+    int x = cell % m_width - (cluster % m_cluster_columns) * CLUSTER_SIZE;
+    int y = cell / m_width - (cluster / m_cluster_columns) * CLUSTER_SIZE;
+    return y * CLUSTER_SIZE + x;
+  }
+}
@@ -26,7 +26,8 @@
 package es.ull.mazesolver.maze;
 
 import java.awt.Point;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.SplittableRandom;
 
 import es.ull.mazesolver.gui.MainWindow;
 import es.ull.mazesolver.util.Direction;
@@ -57,15 +58,23 @@ public abstract class MazeCreationAlgorithm {
   protected int m_columns;
 
   /**
-   * Matriz de celdas del laberinto que se va a crear o se esá creando.
+   * Rejilla de celdas del laberinto que se está creando. Se reserva al
+   * principio de {@link MazeCreationAlgorithm#createMaze()}.
    */
-  protected ArrayList <ArrayList <MazeCell>> m_maze;
+  protected MazeGrid m_maze;
 
   /**
    * Punto de salida del laberinto.
    */
   protected Point m_maze_exit;
 
+  /**
+   * Generador de números aleatorios del que deben sacar todos sus valores
+   * aleatorios las subclases, para que los laberintos se puedan reproducir a
+   * partir de su semilla.
+   */
+  protected SplittableRandom m_random = new SplittableRandom();
+
   private int m_cycles, m_walls;
 
   /**
@@ -83,7 +92,6 @@ public abstract class MazeCreationAlgorithm {
 
     m_rows = rows;
     m_columns = columns;
-    m_maze = initializeMaze();
   }
 
   /**
@@ -98,9 +106,10 @@ public abstract class MazeCreationAlgorithm {
   /**
    * Crea el laberinto, coloca la salida y añade los ciclos y paredes indicados.
    *
-   * @return La matriz que contiene las celdas del laberinto.
+   * @return La rejilla que contiene las celdas del laberinto.
    */
-  public ArrayList <ArrayList <MazeCell>> createMaze () {
+  public MazeGrid createMaze () {
+    m_maze = initializeMaze();
     runCreationAlgorithm();
     createExit();
     addRandomCycles(m_cycles);
@@ -109,6 +118,31 @@ public abstract class MazeCreationAlgorithm {
     return m_maze;
   }
 
+  /**
+   * Establece la semilla del generador de números aleatorios. Dos instancias
+   * del mismo algoritmo con el mismo tamaño, ciclos, componentes y semilla
+   * crean exactamente el mismo laberinto.
+   *
+   * @param seed
+   *          Semilla.
+   */
+  public void setSeed (long seed) {
+    m_random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Establece el generador de números aleatorios que utiliza el algoritmo. Al
+   * generar varios laberintos en paralelo se puede dar a cada algoritmo el
+   * resultado de {@link SplittableRandom#split()} de un generador común para
+   * que no compartan estado.
+   *
+   * @param random
+   *          Generador de números aleatorios. No puede ser {@code null}.
+   */
+  public void setRandom (SplittableRandom random) {
+    m_random = random;
+  }
+
   /**
    * Establece el número de ciclos que se quiere que genere el algoritmo.
    *
@@ -146,15 +180,8 @@ public abstract class MazeCreationAlgorithm {
    *
    * @return Un laberinto vacío del tamaño especificado.
    */
-  protected ArrayList <ArrayList <MazeCell>> initializeMaze () {
-    ArrayList <ArrayList <MazeCell>> maze = new ArrayList <ArrayList <MazeCell>>(m_rows);
-    for (int y = 0; y < m_rows; y++) {
-      maze.add(new ArrayList <MazeCell>(m_columns));
-      for (int x = 0; x < m_columns; x++)
-        maze.get(y).add(new MazeCell());
-    }
-
-    return maze;
+  protected MazeGrid initializeMaze () {
+    return new MazeGrid(m_rows, m_columns);
   }
 
   /**
@@ -170,26 +197,42 @@ public abstract class MazeCreationAlgorithm {
    */
   protected void openPassage (int y, int x, final Direction dir) {
     Pair <Integer, Integer> desp = dir.decompose();
-    m_maze.get(y).get(x).unsetWall(dir);
-    m_maze.get(y + desp.second).get(x + desp.first).unsetWall(dir.getOpposite());
+    m_maze.unsetWall(y, x, dir);
+    m_maze.unsetWall(y + desp.second, x + desp.first, dir.getOpposite());
   }
 
   /**
    * Abre una salida en una casilla aleatoria por los bordes del laberinto.
    */
   private void createExit () {
+    Direction dir = chooseExit();
+    Point cell = dir.getOpposite().movePoint(m_maze_exit);
+    m_maze.unsetWall(cell.y, cell.x, dir);
+  }
+
+  /**
+   * Elige una posición aleatoria para la salida junto a los bordes del
+   * laberinto y la guarda en {@link MazeCreationAlgorithm#m_maze_exit}, pero no
+   * abre su pared. Los algoritmos que no crean el laberinto completo en memoria
+   * lo deben llamar después de generar todas las celdas, igual que
+   * {@link MazeCreationAlgorithm#createMaze()}, para que con la misma semilla
+   * se obtenga el mismo laberinto.
+   *
+   * @return Lado de la celda del borde en el que está la salida.
+   */
+  protected Direction chooseExit () {
     // Decidimos en qué borde vamos a crear la salida
-    Direction dir = Direction.random();
+    Direction dir = Direction.random(m_random);
 
     // Posición en la que se abrirá el hueco: Puede ser tanto una coordenada en
     // X como en Y
     int pos;
     if (dir.isVertical())
-      pos = (int) (Math.random() * m_columns);
+      pos = m_random.nextInt(m_columns);
     else
-      pos = (int) (Math.random() * m_rows);
+      pos = m_random.nextInt(m_rows);
 
-    // Cogemos la celda de salida y abrimos el hueco
+    // Cogemos la celda de salida
     m_maze_exit = new Point();
     switch (dir) {
       case UP:
@@ -208,8 +251,8 @@ public abstract class MazeCreationAlgorithm {
         break;
     }
 
-    m_maze.get(m_maze_exit.y).get(m_maze_exit.x).unsetWall(dir);
     m_maze_exit.setLocation(dir.movePoint(m_maze_exit));
+    return dir;
   }
 
   /**
@@ -224,28 +267,7 @@ public abstract class MazeCreationAlgorithm {
       throw new IllegalArgumentException(
           MainWindow.getTranslations().exception().tooManyWalls());
 
-    int k = 0;
-    Direction dir;
-    while (k < n) {
-      int x = (int) (Math.random() * m_columns);
-      int y = (int) (Math.random() * m_rows);
-      Point p = new Point(x, y);
-      ArrayList <Direction> directions = new ArrayList <Direction>();
-
-      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
-        dir = Direction.fromIndex(i);
-        Point p2 = dir.movePoint(p);
-        if (p2.y >= 0 && p2.y < m_rows && p2.x >= 0 && p2.x < m_columns
-            && m_maze.get(p.y).get(p.x).hasWall(dir))
-          directions.add(dir);
-      }
-
-      if (!directions.isEmpty()) {
-        dir = directions.get((int) (Math.random() * directions.size()));
-        openPassage(p.y, p.x, dir);
-        k++;
-      }
-    }
+    changeRandomEdges(n, true);
   }
 
   /**
@@ -260,30 +282,139 @@ public abstract class MazeCreationAlgorithm {
       throw new IllegalArgumentException(
           MainWindow.getTranslations().exception().tooManyWalls());
 
-    int k = 0;
-    Direction dir;
-    while (k < n) {
-      int x = (int) (Math.random() * m_columns);
-      int y = (int) (Math.random() * m_rows);
-      Point p = new Point(x, y);
-      ArrayList <Direction> directions = new ArrayList <Direction>();
-
-      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
-        dir = Direction.fromIndex(i);
-        Point p2 = dir.movePoint(p);
-        if (p2.y >= 0 && p2.y < m_rows && p2.x >= 0 && p2.x < m_columns
-            && !m_maze.get(p.y).get(p.x).hasWall(dir))
-          directions.add(dir);
-      }
+    changeRandomEdges(n, false);
+  }
 
-      if (!directions.isEmpty()) {
-        dir = directions.get((int) (Math.random() * directions.size()));
-        m_maze.get(p.y).get(p.x).setWall(dir);
-        p = dir.movePoint(p);
-        m_maze.get(p.y).get(p.x).setWall(dir.getOpposite());
-        k++;
+  /**
+   * Cambia el estado de un número de paredes interiores elegidas al azar y sin
+   * repetición entre las que tienen el estado indicado. Para ello se aplica
+   * un Fisher-Yates parcial sobre las paredes interiores, numeradas como en
+   * {@link MazeCreationAlgorithm#hasInteriorWall}.
+   *
+   * Si se piden pocas paredes en comparación con el tamaño del laberinto, la
+   * permutación se representa de forma dispersa (sólo las posiciones que se
+   * han intercambiado), de forma que el coste sólo depende del número de
+   * paredes cambiadas. En otro caso se construye la lista de candidatas.
+   *
+   * @param n
+   *          Número de paredes a cambiar.
+   * @param walls
+   *          {@code true} para quitar paredes existentes o {@code false} para
+   *          cerrar pasillos.
+   */
+  private void changeRandomEdges (int n, boolean walls) {
+    if (n <= 0)
+      return;
+
+    int horizontal = m_rows * (m_columns - 1);
+    int total = horizontal + (m_rows - 1) * m_columns;
+    int changed = 0;
+
+    if ((long) n * 4 < total) {
+      HashMap <Integer, Integer> swapped = new HashMap <Integer, Integer>();
+      for (int i = 0; i < total && changed < n; i++) {
+        int j = i + m_random.nextInt(total - i);
+        Integer edge = swapped.get(j), current = swapped.remove(i);
+        swapped.put(j, current != null? current : i);
+
+        if (changeEdge(edge != null? edge : j, horizontal, walls))
+          changed++;
+      }
+    }
+    else {
+      int [] candidates = new int [total];
+      int count = 0;
+      for (int edge = 0; edge < total; edge++)
+        if (hasInteriorWall(edge, horizontal) == walls)
+          candidates[count++] = edge;
+
+      for (int i = 0; i < count && changed < n; i++) {
+        int j = i + m_random.nextInt(count - i);
+        int edge = candidates[j];
+        candidates[j] = candidates[i];
+
+        changeEdge(edge, horizontal, walls);
+        changed++;
       }
     }
+
+    // Sólo se puede llegar aquí si el laberinto no era perfecto
+    if (changed < n)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().tooManyWalls());
+  }
+
+  /**
+   * Cambia el estado de una pared interior si tiene el estado indicado.
+   *
+   * @param edge
+   *          Índice de la pared interior.
+   * @param horizontal
+   *          Número de paredes entre celdas de la misma fila.
+   * @param walls
+   *          {@code true} para quitar la pared si existe o {@code false} para
+   *          ponerla si no existe.
+   * @return Si se ha cambiado la pared.
+   */
+  private boolean changeEdge (int edge, int horizontal, boolean walls) {
+    if (hasInteriorWall(edge, horizontal) != walls)
+      return false;
+
+    int y = interiorEdgeRow(edge, horizontal), x = interiorEdgeColumn(edge, horizontal);
+    Direction dir = edge < horizontal? Direction.RIGHT : Direction.DOWN;
+
+    if (walls)
+      openPassage(y, x, dir);
+    else {
+      Pair <Integer, Integer> desp = dir.decompose();
+      m_maze.setWall(y, x, dir);
+      m_maze.setWall(y + desp.second, x + desp.first, dir.getOpposite());
+    }
+
+    return true;
+  }
+
+  /**
+   * Indica si hay un muro en una pared interior. Las paredes entre celdas de
+   * la misma fila tienen los índices [0, horizontal) y representan el lado
+   * derecho de la celda; el resto representan el lado inferior.
+   *
+   * @param edge
+   *          Índice de la pared interior.
+   * @param horizontal
+   *          Número de paredes entre celdas de la misma fila.
+   * @return Si hay un muro en esa pared.
+   */
+  private boolean hasInteriorWall (int edge, int horizontal) {
+    return m_maze.hasWall(interiorEdgeRow(edge, horizontal),
+                          interiorEdgeColumn(edge, horizontal),
+                          edge < horizontal? Direction.RIGHT : Direction.DOWN);
+  }
+
+  /**
+   * Obtiene la fila de la celda a la que pertenece una pared interior.
+   *
+   * @param edge
+   *          Índice de la pared interior.
+   * @param horizontal
+   *          Número de paredes entre celdas de la misma fila.
+   * @return Fila de la celda.
+   */
+  private int interiorEdgeRow (int edge, int horizontal) {
+    return edge < horizontal? edge / (m_columns - 1) : (edge - horizontal) / m_columns;
+  }
+
+  /**
+   * Obtiene la columna de la celda a la que pertenece una pared interior.
+   *
+   * @param edge
+   *          Índice de la pared interior.
+   * @param horizontal
+   *          Número de paredes entre celdas de la misma fila.
+   * @return Columna de la celda.
+   */
+  private int interiorEdgeColumn (int edge, int horizontal) {
+    return edge < horizontal? edge % (m_columns - 1) : (edge - horizontal) % m_columns;
   }
 
 }
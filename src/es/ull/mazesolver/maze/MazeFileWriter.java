@@ -0,0 +1,233 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+/**
+ * @file MazeFileWriter.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.maze;
+
+import java.awt.Point;
+import java.io.RandomAccessFile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * Escribe un laberinto en un fichero con el formato binario de
+ * {@link Maze#saveFile(String)} a medida que se reciben sus filas. El fichero
+ * se escribe con un nombre temporal y sólo se renombra al nombre definitivo
+ * cuando se han recibido todas las filas. La salida se escribe al final, junto
+ * con la apertura de su pared, en su posición dentro del fichero.
+ */
+public class MazeFileWriter implements MazeRowSink {
+  private final Path m_target;
+  private Path m_temp;
+  private RandomAccessFile m_out;
+  private FileChannel m_channel;
+  private int m_rows, m_columns;
+
+  /**
+   * Crea un escritor para el fichero indicado.
+   *
+   * @param fileName
+   *          Nombre del fichero donde guardar el laberinto.
+   */
+  public MazeFileWriter (String fileName) {
+    m_target = Paths.get(fileName).toAbsolutePath();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.maze.MazeRowSink#begin(int, int)
+   */
+  @Override
+  public void begin (int rows, int columns) throws IOException {
+    m_rows = rows;
+    m_columns = columns;
+    m_temp = createTempFile();
+    m_out = new RandomAccessFile(m_temp.toFile(), "rw");
+    m_channel = m_out.getChannel();
+
+    try {
+      // La salida todavía no se conoce, así que se reserva su sitio
+      write(Maze.createFileHeader(rows, columns, new Point(-1, -1)));
+    }
+    catch (IOException e) {
+      abort();
+      throw e;
+    }
+  }
+
+  /**
+   * Crea el fichero temporal junto al fichero de destino. A diferencia de
+   * {@link Files#createTempFile}, el fichero se crea con los permisos por
+   * defecto del sistema y, si ya existía el fichero de destino, se le dan sus
+   * mismos permisos, de forma que al renombrarlo no cambien.
+   *
+   * @return Ruta del fichero temporal creado.
+   * @throws IOException
+   *           Si no se puede crear el fichero.
+   */
+  private Path createTempFile () throws IOException {
+    Path temp;
+    for (long suffix = System.nanoTime();; suffix++) {
+      try {
+        temp = Files.createFile(m_target.resolveSibling(m_target.getFileName() + "." +
+                                                        Long.toHexString(suffix) + ".tmp"));
+        break;
+      }
+      catch (FileAlreadyExistsException e) {
+        // Se prueba con el siguiente nombre
+      }
+    }
+
+    if (Files.exists(m_target)) {
+      try {
+        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(m_target));
+      }
+      catch (UnsupportedOperationException e) {
+        // El sistema de ficheros no tiene permisos POSIX
+      }
+    }
+
+    return temp;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.maze.MazeRowSink#writeRow(int,
+   * es.ull.mazesolver.maze.MazeGrid)
+   */
+  @Override
+  public void writeRow (int row, MazeGrid cells) throws IOException {
+    writeRows(cells, 1);
+  }
+
+  /**
+   * Escribe las primeras filas de una rejilla.
+   *
+   * @param cells
+   *          Rejilla de la que tomar las filas.
+   * @param rows
+   *          Número de filas a escribir.
+   * @throws IOException
+   *           Si no se pueden escribir las filas.
+   */
+  void writeRows (MazeGrid cells, int rows) throws IOException {
+    ByteBuffer data = cells.getData().duplicate();
+    data.clear();
+    data.limit(rows * cells.getStride());
+    write(data);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.maze.MazeRowSink#end(java.awt.Point)
+   */
+  @Override
+  public void end (Point exit) throws IOException {
+    try {
+      m_channel.write(Maze.createFileHeader(m_rows, m_columns, exit), 0);
+      openExit(exit);
+      m_out.close();
+      Files.move(m_temp, m_target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    finally {
+      abort();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.maze.MazeRowSink#abort()
+   */
+  @Override
+  public void abort () {
+    try {
+      if (m_out != null)
+        m_out.close();
+      if (m_temp != null)
+        Files.deleteIfExists(m_temp);
+    }
+    catch (IOException e) {
+      // El fichero temporal se queda en disco, pero no hay nada más que hacer
+    }
+    m_out = null;
+    m_channel = null;
+    m_temp = null;
+  }
+
+  /**
+   * Quita en el fichero la pared de la celda del borde que da a la salida.
+   *
+   * @param exit
+   *          Posición de la salida, fuera del laberinto.
+   * @throws IOException
+   *           Si no se puede leer o escribir la celda.
+   */
+  private void openExit (Point exit) throws IOException {
+    Direction dir;
+    if (exit.x < 0)
+      dir = Direction.LEFT;
+    else if (exit.x >= m_columns)
+      dir = Direction.RIGHT;
+    else if (exit.y < 0)
+      dir = Direction.UP;
+    else
+      dir = Direction.DOWN;
+
+    Point cell = dir.getOpposite().movePoint(exit);
+    long position = Maze.FILE_HEADER_SIZE + (long) cell.y * ((m_columns + 1) / 2) + cell.x / 2;
+    ByteBuffer data = ByteBuffer.allocate(1);
+    m_channel.read(data, position);
+
+    // La celda de columna par de cada byte está en los 4 bits de menor peso
+    int mask = (cell.x & 1) == 0? dir.val : dir.val << 4;
+    data.put(0, (byte) (data.get(0) & ~mask));
+    data.rewind();
+    m_channel.write(data, position);
+  }
+
+  /**
+   * Escribe todo el contenido de un buffer en el fichero.
+   *
+   * @param data
+   *          Buffer con los datos a escribir.
+   * @throws IOException
+   *           Si no se pueden escribir los datos.
+   */
+  private void write (ByteBuffer data) throws IOException {
+    while (data.hasRemaining())
+      m_channel.write(data);
+  }
+}
@@ -0,0 +1,437 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file MazeGraph.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.maze;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * Vista de un laberinto como grafo en el que los pasillos están contraídos.
+ * Los nodos son las celdas que no tienen exactamente 2 aberturas (cruces y
+ * callejones sin salida), las celdas que dan a la salida y la propia salida.
+ * Cada arista representa un pasillo entre 2 de estos nodos y su coste es el
+ * número de pasos necesarios para recorrerlo.
+ * <br><br>
+ * En laberintos con pasillos largos el número de nodos es mucho menor que el
+ * de celdas, por lo que las búsquedas sobre este grafo expanden muchos menos
+ * nodos. Las aristas sólo guardan la primera dirección del pasillo, y los
+ * movimientos completos se obtienen bajo demanda con
+ * {@link MazeGraph#expandEdge(int, int, List)}.
+ * <br><br>
+ * Las aristas se almacenan de forma compacta: las que salen de un nodo ocupan
+ * el rango [{@link MazeGraph#getFirstEdge(int)},
+ * {@link MazeGraph#getLastEdge(int)}). Cada pasillo aparece una vez en cada
+ * sentido, y se descartan los pasillos que empiezan y acaban en el mismo nodo.
+ * El grafo no se actualiza si cambia el laberinto, por lo que se debe obtener
+ * mediante {@link Maze#getGraph()}, que lo vuelve a construir cuando es
+ * necesario.
+ */
+public class MazeGraph {
+  // Bit adicional de m_openings para las celdas que dan a la salida
+  private static final int EXIT_FLAG = 0x10;
+
+  private final int m_width, m_height;
+  private final Point m_exit;
+
+  // Aberturas de cada celda (máscara de Direction#val) y nodo asociado a cada
+  // celda, o -1 si forma parte de un pasillo
+  private final byte [] m_openings;
+  private final int [] m_cell_node;
+
+  // Celda asociada a cada nodo (-1 para la salida) y aristas de cada nodo
+  private final int [] m_node_cell;
+  private final int [] m_first_edge;
+  private int [] m_edge_target;
+  private int [] m_edge_cost;
+  private byte [] m_edge_direction;
+  private int m_edges;
+
+  /**
+   * Construye el grafo de pasillos a partir del estado actual de un laberinto.
+   *
+   * @param maze
+   *          Laberinto del que obtener el grafo.
+   */
+  public MazeGraph (Maze maze) {
+    MazeGrid grid = maze.getGrid();
+    m_width = maze.getWidth();
+    m_height = maze.getHeight();
+    m_exit = new Point(maze.getExit());
+
+    int cells = m_width * m_height;
+    m_openings = new byte [cells];
+    m_cell_node = new int [cells];
+
+    for (int y = 0; y < m_height; y++)
+      for (int x = 0; x < m_width; x++)
+        m_openings[y * m_width + x] = (byte) computeOpenings(grid, x, y);
+
+    // Numeramos los nodos en el orden de las celdas y la salida va al final
+    int nodes = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      int openings = m_openings[cell];
+      if (Integer.bitCount(openings & MazeGrid.ALL_WALLS) != 2 || (openings & EXIT_FLAG) != 0)
+        m_cell_node[cell] = nodes++;
+      else
+        m_cell_node[cell] = -1;
+    }
+
+    m_node_cell = new int [nodes + 1];
+    m_first_edge = new int [nodes + 2];
+    for (int cell = 0; cell < cells; cell++)
+      if (m_cell_node[cell] != -1)
+        m_node_cell[m_cell_node[cell]] = cell;
+    m_node_cell[nodes] = -1;
+
+    int capacity = Math.max(16, nodes * 2);
+    m_edge_target = new int [capacity];
+    m_edge_cost = new int [capacity];
+    m_edge_direction = new byte [capacity];
+
+    int [] length = new int [1];
+    for (int node = 0; node < nodes; node++) {
+      m_first_edge[node] = m_edges;
+
+      int cell = m_node_cell[node];
+      int x = cell % m_width, y = cell / m_width;
+      for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+        Direction dir = Direction.fromIndex(i);
+        if ((m_openings[cell] & dir.val) == 0)
+          continue;
+
+        int target = walk(x, y, dir, -1, null, length);
+        if (target != node)
+          addEdge(target, length[0], i);
+      }
+    }
+
+    // Las aristas de la salida van en sentido contrario a las que llegan a ella
+    m_first_edge[nodes] = m_edges;
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      Point cell = dir.movePoint(m_exit);
+      if (maze.containsPoint(cell) &&
+          (m_openings[cell.y * m_width + cell.x] & dir.getOpposite().val) != 0)
+        addEdge(m_cell_node[cell.y * m_width + cell.x], 1, i);
+    }
+    m_first_edge[nodes + 1] = m_edges;
+  }
+
+  /**
+   * @return Número de nodos del grafo, incluyendo el de la salida.
+   */
+  public int getNodeCount () {
+    return m_node_cell.length;
+  }
+
+  /**
+   * @return Número de aristas del grafo. Cada pasillo cuenta como 2 aristas,
+   *         una en cada sentido.
+   */
+  public int getEdgeCount () {
+    return m_edges;
+  }
+
+  /**
+   * @return Nodo que representa la salida del laberinto.
+   */
+  public int getExitNode () {
+    return m_node_cell.length - 1;
+  }
+
+  /**
+   * Obtiene el nodo asociado a una celda del laberinto.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @return Nodo de la celda o -1 si la celda forma parte de un pasillo.
+   */
+  public int getNode (int row, int column) {
+    return m_cell_node[row * m_width + column];
+  }
+
+  /**
+   * Obtiene la celda del laberinto asociada a un nodo, sin crear objetos.
+   *
+   * @param node
+   *          Nodo.
+   * @return Índice {@code fila * anchura + columna} de la celda del nodo, o -1
+   *         para el nodo de la salida, que queda fuera del laberinto.
+   */
+  public int getNodeCell (int node) {
+    return m_node_cell[node];
+  }
+
+  /**
+   * Obtiene la posición en el laberinto de un nodo.
+   *
+   * @param node
+   *          Nodo.
+   * @return Posición del nodo. Para el nodo de la salida, es la posición de la
+   *         salida, que queda fuera del laberinto.
+   */
+  public Point getPosition (int node) {
+    int cell = m_node_cell[node];
+    return cell == -1? new Point(m_exit) : new Point(cell % m_width, cell / m_width);
+  }
+
+  /**
+   * @param node
+   *          Nodo.
+   * @return Primera arista que sale del nodo.
+   */
+  public int getFirstEdge (int node) {
+    return m_first_edge[node];
+  }
+
+  /**
+   * @param node
+   *          Nodo.
+   * @return Arista siguiente a la última que sale del nodo.
+   */
+  public int getLastEdge (int node) {
+    return m_first_edge[node + 1];
+  }
+
+  /**
+   * @param edge
+   *          Arista.
+   * @return Nodo en el que termina la arista.
+   */
+  public int getTarget (int edge) {
+    return m_edge_target[edge];
+  }
+
+  /**
+   * @param edge
+   *          Arista.
+   * @return Número de pasos necesarios para recorrer la arista.
+   */
+  public int getCost (int edge) {
+    return m_edge_cost[edge];
+  }
+
+  /**
+   * @param edge
+   *          Arista.
+   * @return Dirección del primer paso de la arista.
+   */
+  public Direction getDirection (int edge) {
+    return Direction.fromIndex(m_edge_direction[edge]);
+  }
+
+  /**
+   * Añade a una lista los movimientos necesarios para recorrer una arista.
+   *
+   * @param node
+   *          Nodo del que sale la arista.
+   * @param edge
+   *          Arista que se quiere recorrer.
+   * @param path
+   *          Lista en la que añadir los movimientos.
+   */
+  public void expandEdge (int node, int edge, List <Direction> path) {
+    Point pos = getPosition(node);
+    walk(pos.x, pos.y, getDirection(edge), -1, path, new int [1]);
+  }
+
+  /**
+   * Recorre el pasillo al que pertenece una celda en una dirección hasta llegar
+   * a un nodo.
+   *
+   * @param row
+   *          Fila de la celda de partida.
+   * @param column
+   *          Columna de la celda de partida.
+   * @param dir
+   *          Dirección del primer paso, que debe estar abierta.
+   * @param path
+   *          Lista en la que añadir los movimientos, o {@code null} si no se
+   *          necesitan.
+   * @return Nodo en el que termina el recorrido, o -1 si el pasillo forma un
+   *         ciclo sin nodos y se vuelve a la celda de partida.
+   */
+  public int follow (int row, int column, Direction dir, List <Direction> path) {
+    return walk(column, row, dir, row * m_width + column, path, new int [1]);
+  }
+
+  /**
+   * Localiza dentro del grafo una celda cualquiera del laberinto. Si la celda
+   * es un nodo, se devuelve él mismo. Si forma parte de un pasillo, se
+   * devuelven los nodos en los que termina el pasillo en cada sentido.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param nodes
+   *          Array de al menos 2 elementos en el que guardar los nodos.
+   * @param costs
+   *          Array de al menos 2 elementos en el que guardar el número de pasos
+   *          hasta cada nodo.
+   * @param dirs
+   *          Array de al menos 2 elementos en el que guardar la dirección del
+   *          primer paso hacia cada nodo.
+   * @return Número de nodos encontrados. Es 0 si la celda está en un pasillo
+   *         cerrado sobre sí mismo.
+   */
+  public int locate (int row, int column, int [] nodes, int [] costs, Direction [] dirs) {
+    int cell = row * m_width + column;
+    if (m_cell_node[cell] != -1) {
+      nodes[0] = m_cell_node[cell];
+      costs[0] = 0;
+      dirs[0] = Direction.NONE;
+      return 1;
+    }
+
+    int found = 0;
+    int [] length = new int [1];
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      if ((m_openings[cell] & dir.val) == 0)
+        continue;
+
+      int node = walk(column, row, dir, cell, null, length);
+      if (node == -1)
+        return 0;
+
+      nodes[found] = node;
+      costs[found] = length[0];
+      dirs[found] = dir;
+      found++;
+    }
+
+    return found;
+  }
+
+  /**
+   * Avanza desde una posición en una dirección y continúa por el pasillo hasta
+   * llegar a un nodo.
+   *
+   * @param x
+   *          Columna de partida.
+   * @param y
+   *          Fila de partida.
+   * @param dir
+   *          Dirección del primer paso.
+   * @param stop
+   *          Celda en la que detenerse sin llegar a un nodo, o -1.
+   * @param path
+   *          Lista en la que añadir los movimientos, o {@code null}.
+   * @param length
+   *          Array en el que guardar el número de pasos dados.
+   * @return Nodo alcanzado, o -1 si se llega a la celda {@code stop}.
+   */
+  private int walk (int x, int y, Direction dir, int stop, List <Direction> path, int [] length) {
+    int steps = 0;
+    while (true) {
+      x += dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0;
+      y += dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0;
+      steps++;
+      if (path != null)
+        path.add(dir);
+
+      if (x == m_exit.x && y == m_exit.y) {
+        length[0] = steps;
+        return getExitNode();
+      }
+
+      int cell = y * m_width + x;
+      if (m_cell_node[cell] != -1) {
+        length[0] = steps;
+        return m_cell_node[cell];
+      }
+      if (cell == stop)
+        return -1;
+
+      // En un pasillo sólo queda una abertura además de la que nos ha traído
+      int next = m_openings[cell] & ~dir.getOpposite().val & MazeGrid.ALL_WALLS;
+      dir = Direction.fromIndex(Integer.numberOfTrailingZeros(next) + 1);
+    }
+  }
+
+  /**
+   * Añade una arista al nodo que se está construyendo.
+   *
+   * @param target
+   *          Nodo destino.
+   * @param cost
+   *          Coste de la arista.
+   * @param direction
+   *          Índice de la dirección del primer paso.
+   */
+  private void addEdge (int target, int cost, int direction) {
+    if (m_edges == m_edge_target.length) {
+      int capacity = m_edges * 2;
+      m_edge_target = Arrays.copyOf(m_edge_target, capacity);
+      m_edge_cost = Arrays.copyOf(m_edge_cost, capacity);
+      m_edge_direction = Arrays.copyOf(m_edge_direction, capacity);
+    }
+
+    m_edge_target[m_edges] = target;
+    m_edge_cost[m_edges] = cost;
+    m_edge_direction[m_edges] = (byte) direction;
+    m_edges++;
+  }
+
+  /**
+   * Calcula las direcciones por las que se puede salir de una celda. Un paso es
+   * posible si no hay pared en ninguna de las 2 celdas que une, o si lleva
+   * directamente a la salida.
+   *
+   * @param grid
+   *          Rejilla del laberinto.
+   * @param x
+   *          Columna.
+   * @param y
+   *          Fila.
+   * @return Máscara de direcciones abiertas, con {@link MazeGraph#EXIT_FLAG}
+   *         si una de ellas lleva a la salida.
+   */
+  private int computeOpenings (MazeGrid grid, int x, int y) {
+    int walls = grid.getWalls(y, x), openings = 0;
+    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
+      Direction dir = Direction.fromIndex(i);
+      if ((walls & dir.val) != 0)
+        continue;
+
+      int nx = x + (dir == Direction.LEFT? -1 : dir == Direction.RIGHT? 1 : 0);
+      int ny = y + (dir == Direction.UP? -1 : dir == Direction.DOWN? 1 : 0);
+      if (nx == m_exit.x && ny == m_exit.y)
+        openings |= dir.val | EXIT_FLAG;
+      else if (nx >= 0 && ny >= 0 && nx < m_width && ny < m_height &&
+               (grid.getWalls(ny, nx) & dir.getOpposite().val) == 0)
+        openings |= dir.val;
+    }
+    return openings;
+  }
+}
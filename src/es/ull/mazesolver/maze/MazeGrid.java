@@ -0,0 +1,306 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file MazeGrid.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.maze;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import es.ull.mazesolver.gui.MainWindow;
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * Almacenamiento compacto de las paredes de un laberinto. Cada celda ocupa 4
+ * bits dentro de un único {@code byte[]}, usando como máscara los valores de
+ * {@link Direction#val}, por lo que dos celdas comparten cada byte.
+ *
+ * Cada fila empieza en un byte nuevo, de manera que dos filas distintas (o dos
+ * bloques de columnas que empiecen en una columna par) nunca comparten bytes y
+ * pueden modificarse desde hilos distintos sin interferir entre sí.
+ *
+ * Las celdas se guardan en un {@link ByteBuffer}, que puede estar en memoria o
+ * proyectado sobre un fichero, de forma que las rejillas cargadas desde disco
+ * no se tienen que leer completas para empezar a usarlas. Si el buffer es de
+ * sólo lectura, se copia a memoria la primera vez que se modifica la rejilla.
+ */
+public class MazeGrid {
+  /**
+   * Máscara con las 4 paredes de una celda activas.
+   */
+  public static final int ALL_WALLS = Direction.UP.val | Direction.DOWN.val |
+                                      Direction.LEFT.val | Direction.RIGHT.val;
+
+  private final int m_rows, m_columns;
+  private final int m_stride;
+  private ByteBuffer m_cells;
+
+  /**
+   * Crea una rejilla del tamaño indicado en la que todas las celdas están
+   * rodeadas de paredes.
+   *
+   * @param rows
+   *          Número de filas.
+   * @param columns
+   *          Número de columnas.
+   */
+  public MazeGrid (int rows, int columns) {
+    if (rows <= 0 || columns <= 0)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().tooSmallRowsCols());
+    if ((long) rows * ((columns + 1) / 2) > Integer.MAX_VALUE)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().indexOutOfRange());
+
+    m_rows = rows;
+    m_columns = columns;
+    m_stride = (columns + 1) / 2;
+    m_cells = ByteBuffer.allocate(rows * m_stride);
+    fill(ALL_WALLS);
+  }
+
+  /**
+   * Crea una rejilla que utiliza como almacenamiento un buffer ya existente,
+   * con el formato descrito en {@link MazeGrid#getData()}. No se copia el
+   * contenido del buffer, por lo que puede ser una proyección de un fichero.
+   *
+   * @param rows
+   *          Número de filas.
+   * @param columns
+   *          Número de columnas.
+   * @param data
+   *          Buffer con las celdas empaquetadas. Sus índices absolutos empiezan
+   *          en 0 y su capacidad debe ser suficiente para toda la rejilla.
+   */
+  MazeGrid (int rows, int columns, ByteBuffer data) {
+    if (rows <= 0 || columns <= 0)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().tooSmallRowsCols());
+    if ((long) rows * ((columns + 1) / 2) > data.capacity())
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().indexOutOfRange());
+
+    m_rows = rows;
+    m_columns = columns;
+    m_stride = (columns + 1) / 2;
+    m_cells = data;
+  }
+
+  /**
+   * Obtiene el número de filas de la rejilla.
+   *
+   * @return Número de filas.
+   */
+  public int getRows () {
+    return m_rows;
+  }
+
+  /**
+   * Obtiene el número de columnas de la rejilla.
+   *
+   * @return Número de columnas.
+   */
+  public int getColumns () {
+    return m_columns;
+  }
+
+  /**
+   * Obtiene el campo de bits con las paredes de una celda.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @return Paredes de la celda como combinación de {@link Direction#val}.
+   */
+  public int getWalls (int row, int column) {
+    int b = m_cells.get(row * m_stride + (column >> 1));
+    return (column & 1) == 0? b & 0x0F : (b >> 4) & 0x0F;
+  }
+
+  /**
+   * Sustituye todas las paredes de una celda.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param walls
+   *          Paredes de la celda como combinación de {@link Direction#val}.
+   */
+  public void setWalls (int row, int column, int walls) {
+    if (m_cells.isReadOnly())
+      detach();
+
+    int i = row * m_stride + (column >> 1);
+    int b = m_cells.get(i);
+    if ((column & 1) == 0)
+      m_cells.put(i, (byte) ((b & 0xF0) | (walls & 0x0F)));
+    else
+      m_cells.put(i, (byte) ((b & 0x0F) | ((walls & 0x0F) << 4)));
+  }
+
+  /**
+   * Indica si hay un muro en un lado de la celda.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param dir
+   *          Lado de la celda que se quiere consultar.
+   * @return Si hay un muro en esa dirección o no.
+   */
+  public boolean hasWall (int row, int column, Direction dir) {
+    return (getWalls(row, column) & dir.val) != 0;
+  }
+
+  /**
+   * Pone un muro en un lado de la celda.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param dir
+   *          Lado de la celda que se quiere modificar.
+   */
+  public void setWall (int row, int column, Direction dir) {
+    setWalls(row, column, getWalls(row, column) | dir.val);
+  }
+
+  /**
+   * Quita el muro de un lado de la celda.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param dir
+   *          Lado de la celda que se quiere modificar.
+   */
+  public void unsetWall (int row, int column, Direction dir) {
+    setWalls(row, column, getWalls(row, column) & ~dir.val);
+  }
+
+  /**
+   * Cambia el estado de un lado de la celda. Si no había muro, ahora lo hay y
+   * viceversa.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @param dir
+   *          Lado de la celda que se quiere modificar.
+   */
+  public void toggleWall (int row, int column, Direction dir) {
+    setWalls(row, column, getWalls(row, column) ^ dir.val);
+  }
+
+  /**
+   * Elimina todas las paredes de la celda.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   */
+  public void removeWalls (int row, int column) {
+    setWalls(row, column, 0);
+  }
+
+  /**
+   * Asigna las mismas paredes a todas las celdas de la rejilla.
+   *
+   * @param walls
+   *          Paredes de cada celda como combinación de {@link Direction#val}.
+   */
+  public void fill (int walls) {
+    byte value = (byte) ((walls & 0x0F) | ((walls & 0x0F) << 4));
+    int size = m_rows * m_stride;
+
+    if (m_cells.isReadOnly())
+      m_cells = ByteBuffer.allocate(size);
+
+    if (m_cells.hasArray())
+      Arrays.fill(m_cells.array(), m_cells.arrayOffset(), m_cells.arrayOffset() + size, value);
+    else
+      for (int i = 0; i < size; i++)
+        m_cells.put(i, value);
+  }
+
+  /**
+   * Obtiene una vista de una celda de la rejilla. Las modificaciones hechas
+   * sobre la celda devuelta se reflejan directamente en la rejilla.
+   *
+   * @param row
+   *          Fila.
+   * @param column
+   *          Columna.
+   * @return Celda enlazada a la posición indicada.
+   */
+  public MazeCell getCell (int row, int column) {
+    return new MazeCell(this, row, column);
+  }
+
+  /**
+   * Obtiene el buffer interno en el que se guardan las celdas. Cada fila ocupa
+   * {@link MazeGrid#getStride()} bytes y la celda de columna par de cada byte
+   * está en los 4 bits de menor peso. Sólo se deben usar sus métodos de acceso
+   * absoluto, ya que su posición no se tiene en cuenta.
+   *
+   * @return Buffer con las celdas empaquetadas.
+   */
+  ByteBuffer getData () {
+    return m_cells;
+  }
+
+  /**
+   * Sustituye el buffer de sólo lectura que se está usando como almacenamiento
+   * por una copia en memoria que se pueda modificar.
+   */
+  private synchronized void detach () {
+    if (m_cells.isReadOnly()) {
+      ByteBuffer source = m_cells.duplicate();
+      source.clear();
+      source.limit(m_rows * m_stride);
+
+      ByteBuffer copy = ByteBuffer.allocate(m_rows * m_stride);
+      copy.put(source);
+      m_cells = copy;
+    }
+  }
+
+  /**
+   * Obtiene el número de bytes que ocupa cada fila en el array interno.
+   *
+   * @return Número de bytes por fila.
+   */
+  int getStride () {
+    return m_stride;
+  }
+
+}
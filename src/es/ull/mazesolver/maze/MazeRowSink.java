@@ -0,0 +1,81 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+/**
+ * @file MazeRowSink.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.maze;
+
+import java.awt.Point;
+import java.io.IOException;
+
+/**
+ * Destino de un laberinto que se genera fila a fila, de forma que no hace
+ * falta tenerlo completo en memoria. Las filas se reciben en orden, de la
+ * primera a la última.
+ */
+public interface MazeRowSink {
+  /**
+   * Indica que empieza la generación de un laberinto.
+   *
+   * @param rows
+   *          Número de filas del laberinto.
+   * @param columns
+   *          Número de columnas del laberinto.
+   * @throws IOException
+   *           Si no se puede preparar el destino.
+   */
+  void begin (int rows, int columns) throws IOException;
+
+  /**
+   * Recibe la siguiente fila del laberinto.
+   *
+   * @param row
+   *          Índice de la fila.
+   * @param cells
+   *          Rejilla de una única fila con las paredes de sus celdas. Se
+   *          reutiliza para las siguientes filas, así que no se debe guardar.
+   * @throws IOException
+   *           Si no se puede escribir la fila.
+   */
+  void writeRow (int row, MazeGrid cells) throws IOException;
+
+  /**
+   * Indica que ya se han recibido todas las filas del laberinto. La salida se
+   * elige al terminar de generarlas, como en
+   * {@link MazeCreationAlgorithm#createMaze()}, así que la pared que la separa
+   * de su celda adyacente puede estar aún cerrada en las filas recibidas y el
+   * destino debe abrirla.
+   *
+   * @param exit
+   *          Posición de la salida del laberinto.
+   * @throws IOException
+   *           Si no se puede completar la escritura.
+   */
+  void end (Point exit) throws IOException;
+
+  /**
+   * Indica que la generación se ha interrumpido y se deben descartar las filas
+   * recibidas.
+   */
+  void abort ();
+}
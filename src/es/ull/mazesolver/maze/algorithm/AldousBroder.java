@@ -36,7 +36,7 @@ import es.ull.mazesolver.util.Direction;
  * laberintos perfectos.
  */
 public class AldousBroder extends MazeCreationAlgorithm {
-  private short cellVisitedCount = 0;
+  private int cellVisitedCount = 0;
   private ArrayList <ArrayList <Boolean>> m_included_cells;
 
   /**
@@ -68,9 +68,11 @@ public class AldousBroder extends MazeCreationAlgorithm {
    */
   @Override
   public void runCreationAlgorithm () {
-    int x = (int) (Math.random() * m_columns);
-    int y = (int) (Math.random() * m_rows);
+    int x = m_random.nextInt(m_columns);
+    int y = m_random.nextInt(m_rows);
     Point p = new Point(x, y);
+    m_included_cells.get(y).set(x, true);
+    cellVisitedCount = 1;
 
     while (cellVisitedCount < (m_columns * m_rows)) {
       Direction dir = getRandomDirection(p.y, p.x);
@@ -99,7 +101,7 @@ public class AldousBroder extends MazeCreationAlgorithm {
     Direction dir;
 
     do {
-      dir = Direction.random();
+      dir = Direction.random(m_random);
       next_pos = dir.movePoint(p);
     }
     while (next_pos.y < 0 || next_pos.y >= m_rows || next_pos.x < 0 || next_pos.x >= m_columns);
@@ -0,0 +1,260 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+/**
+ * @file Eller.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.maze.algorithm;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import es.ull.mazesolver.maze.MazeCreationAlgorithm;
+import es.ull.mazesolver.maze.MazeFileWriter;
+import es.ull.mazesolver.maze.MazeGrid;
+import es.ull.mazesolver.maze.MazeRowSink;
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * Implementación del algoritmo de Eller para la generación aleatoria de
+ * laberintos perfectos.
+ *
+ * El algoritmo crea el laberinto fila a fila, guardando únicamente el conjunto
+ * al que pertenece cada celda de la fila actual, por lo que además de usarse
+ * como el resto de algoritmos puede enviar las filas a un {@link MazeRowSink}
+ * a medida que las genera. De esta forma se pueden crear laberintos de
+ * cualquier altura usando una memoria proporcional a su anchura.
+ */
+public class Eller extends MazeCreationAlgorithm {
+
+  /**
+   * Constructor. Crea una nueva instancia de la clase.
+   *
+   * @param rows
+   *          Número de filas del laberinto.
+   * @param columns
+   *          Número de columnas del laberinto.
+   */
+  public Eller (int rows, int columns) {
+    super(rows, columns);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.maze.MazeCreationAlgorithm#runCreationAlgorithm()
+   */
+  @Override
+  protected void runCreationAlgorithm () {
+    try {
+      generateRows(new MazeRowSink() {
+        @Override
+        public void begin (int rows, int columns) {
+        }
+
+        @Override
+        public void writeRow (int row, MazeGrid cells) {
+          for (int x = 0; x < m_columns; x++)
+            m_maze.setWalls(row, x, cells.getWalls(0, x));
+        }
+
+        @Override
+        public void end (Point exit) {
+        }
+
+        @Override
+        public void abort () {
+        }
+      });
+    }
+    catch (IOException e) {
+      // La rejilla en memoria no produce errores de entrada/salida
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Genera el laberinto enviando sus filas al destino indicado, sin guardarlo
+   * completo en memoria. La salida se coloca igual que en
+   * {@link MazeCreationAlgorithm#createMaze()}, pero no se añaden ciclos ni
+   * paredes adicionales, ya que para ello haría falta el laberinto completo.
+   *
+   * @param sink
+   *          Destino de las filas del laberinto.
+   * @throws IOException
+   *           Si el destino no puede procesar alguna fila.
+   */
+  public void generate (MazeRowSink sink) throws IOException {
+    sink.begin(m_rows, m_columns);
+    try {
+      generateRows(sink);
+    }
+    catch (IOException | RuntimeException e) {
+      sink.abort();
+      throw e;
+    }
+
+    // La salida se elige después de las filas, en el mismo orden que en
+    // createMaze(), para que con la misma semilla el laberinto sea el mismo
+    chooseExit();
+    sink.end(m_maze_exit);
+  }
+
+  /**
+   * Genera el laberinto directamente en un fichero con el formato binario de
+   * {@link es.ull.mazesolver.maze.Maze#saveFile(String)}.
+   *
+   * @param fileName
+   *          Nombre del fichero donde guardar el laberinto.
+   * @throws IOException
+   *           Si no se puede escribir el fichero.
+   */
+  public void writeFile (String fileName) throws IOException {
+    generate(new MazeFileWriter(fileName));
+  }
+
+  /**
+   * Ejecuta el algoritmo de Eller, enviando cada fila al destino indicado en
+   * cuanto está terminada.
+   *
+   * @param sink
+   *          Destino de las filas.
+   * @throws IOException
+   *           Si el destino no puede procesar alguna fila.
+   */
+  private void generateRows (MazeRowSink sink) throws IOException {
+    // Conjunto de cada celda de la fila actual (-1 si todavía no tiene) y
+    // bosque de conjuntos disjuntos sobre esas etiquetas. Como nunca hay más
+    // conjuntos que celdas en la fila, las etiquetas se renumeran en cada fila
+    // para que sean menores que la anchura.
+    int [] set = new int [m_columns];
+    int [] parent = new int [m_columns];
+    int [] relabel = new int [m_columns];
+
+    // Para cada conjunto, número de celdas vistas, celda elegida para bajar si
+    // no baja ninguna y si ya tiene alguna celda conectada con la fila
+    // siguiente
+    int [] members = new int [m_columns];
+    int [] candidate = new int [m_columns];
+    boolean [] has_down = new boolean [m_columns];
+
+    BitSet up = new BitSet(m_columns), down = new BitSet(m_columns);
+    MazeGrid row = new MazeGrid(1, m_columns);
+    Arrays.fill(set, -1);
+
+    for (int y = 0; y < m_rows; y++) {
+      boolean last = y == m_rows - 1;
+
+      // Renumeramos los conjuntos que vienen de la fila anterior y damos uno
+      // nuevo a cada celda que no tiene
+      int labels = 0;
+      Arrays.fill(relabel, -1);
+      for (int x = 0; x < m_columns; x++)
+        if (set[x] >= 0) {
+          if (relabel[set[x]] < 0)
+            relabel[set[x]] = labels++;
+          set[x] = relabel[set[x]];
+        }
+      for (int x = 0; x < m_columns; x++)
+        if (set[x] < 0)
+          set[x] = labels++;
+      for (int i = 0; i < labels; i++)
+        parent[i] = i;
+
+      row.fill(MazeGrid.ALL_WALLS);
+      for (int x = up.nextSetBit(0); x >= 0; x = up.nextSetBit(x + 1))
+        row.unsetWall(0, x, Direction.UP);
+
+      // Unimos aleatoriamente celdas contiguas de conjuntos distintos. En la
+      // última fila se unen todas para que el laberinto quede conectado.
+      for (int x = 0; x < m_columns - 1; x++) {
+        int a = find(parent, set[x]), b = find(parent, set[x + 1]);
+        if (a != b && (last || m_random.nextBoolean())) {
+          row.unsetWall(0, x, Direction.RIGHT);
+          row.unsetWall(0, x + 1, Direction.LEFT);
+          parent[a] = b;
+        }
+      }
+
+      // Cada conjunto baja al menos por una de sus celdas, elegida de manera
+      // uniforme si no baja por ninguna de forma aleatoria
+      down.clear();
+      if (!last) {
+        Arrays.fill(members, 0, labels, 0);
+        Arrays.fill(has_down, 0, labels, false);
+
+        for (int x = 0; x < m_columns; x++) {
+          int s = find(parent, set[x]);
+          set[x] = s;
+          if (m_random.nextInt(++members[s]) == 0)
+            candidate[s] = x;
+          if (m_random.nextBoolean()) {
+            down.set(x);
+            has_down[s] = true;
+          }
+        }
+
+        for (int x = 0; x < m_columns; x++) {
+          int s = set[x];
+          if (!has_down[s]) {
+            down.set(candidate[s]);
+            has_down[s] = true;
+          }
+        }
+
+        for (int x = 0; x < m_columns; x++) {
+          if (down.get(x))
+            row.unsetWall(0, x, Direction.DOWN);
+          else
+            set[x] = -1;
+        }
+      }
+
+      sink.writeRow(y, row);
+
+      BitSet aux = up;
+      up = down;
+      down = aux;
+    }
+  }
+
+  /**
+   * Obtiene el representante del conjunto al que pertenece una etiqueta,
+   * acortando el camino recorrido.
+   *
+   * @param parent
+   *          Padre de cada etiqueta en el bosque de conjuntos disjuntos.
+   * @param label
+   *          Etiqueta del conjunto.
+   * @return Etiqueta representante del conjunto.
+   */
+  private static int find (int [] parent, int label) {
+    while (parent[label] != label) {
+      parent[label] = parent[parent[label]];
+      label = parent[label];
+    }
+    return label;
+  }
+
+}
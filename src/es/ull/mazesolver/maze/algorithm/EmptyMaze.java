@@ -53,9 +53,7 @@ public class EmptyMaze extends MazeCreationAlgorithm {
   @Override
   protected void runCreationAlgorithm () {
     // Quitamos todas las paredes, incluidos los bordes
-    for (int y = 0; y < m_rows; y++)
-      for (int x = 0; x < m_columns; x++)
-        m_maze.get(y).get(x).removeWalls();
+    m_maze.fill(0);
   }
 
 }
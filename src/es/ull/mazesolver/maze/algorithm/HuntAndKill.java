@@ -26,7 +26,7 @@
 package es.ull.mazesolver.maze.algorithm;
 
 import java.awt.Point;
-import java.util.ArrayList;
+import java.util.BitSet;
 
 import es.ull.mazesolver.maze.MazeCreationAlgorithm;
 import es.ull.mazesolver.util.Direction;
@@ -34,9 +34,20 @@ import es.ull.mazesolver.util.Direction;
 /**
  * Implementación del algoritmo de Hunt And Kill para la generación aleatoria de
  * laberintos perfectos.
+ *
+ * La fase de búsqueda (hunt) recorre el laberinto por filas mediante un cursor
+ * que nunca retrocede: todas las celdas anteriores al cursor están ya incluidas
+ * en el laberinto, y las filas completas se saltan gracias a un contador de
+ * celdas pendientes por fila. Así, el coste total de todas las búsquedas es
+ * lineal en el número de celdas.
  */
 public class HuntAndKill extends MazeCreationAlgorithm {
-  private ArrayList <ArrayList <Boolean>> m_included_cells;
+  private BitSet m_included_cells;
+  private int [] m_row_remaining;
+  private int m_hunt_row, m_hunt_column;
+
+  // Direcciones candidatas al elegir una dirección aleatoria
+  private final Direction [] m_candidates = new Direction [4];
 
   /**
    * Constructor. Crea una nueva instancia de la clase.
@@ -48,16 +59,6 @@ public class HuntAndKill extends MazeCreationAlgorithm {
    */
   public HuntAndKill (int rows, int columns) {
     super(rows, columns);
-
-    // Creamos una matriz de visitados para saber en cada momento cuáles son
-    // las celdas que no se han visitado todavía.
-    m_included_cells = new ArrayList <ArrayList <Boolean>>(rows);
-
-    for (int y = 0; y < rows; y++) {
-      m_included_cells.add(new ArrayList <Boolean>(columns));
-      for (int x = 0; x < columns; x++)
-        m_included_cells.get(y).add(false);
-    }
   }
 
   /*
@@ -67,14 +68,24 @@ public class HuntAndKill extends MazeCreationAlgorithm {
    */
   @Override
   public void runCreationAlgorithm () {
-    int x = (int) (Math.random() * m_rows);
-    int y = (int) (Math.random() * m_columns);
+    m_included_cells = new BitSet(m_rows * m_columns);
+    m_row_remaining = new int [m_rows];
+    for (int y = 0; y < m_rows; y++)
+      m_row_remaining[y] = m_columns;
+    m_hunt_row = m_hunt_column = 0;
+
+    int x = m_random.nextInt(m_columns);
+    int y = m_random.nextInt(m_rows);
+    include(y, x);
 
     Point p = new Point(x, y);
     while (p != null) {
       walk(p);
       p = hunt();
     }
+
+    m_included_cells = null;
+    m_row_remaining = null;
   }
 
   /**
@@ -86,69 +97,112 @@ public class HuntAndKill extends MazeCreationAlgorithm {
    *          buscar un nuevo camino.
    */
   private void walk (Point p) {
-    Direction dir = getRandomDirection(p.y, p.x);
+    Direction dir = getRandomDirection(p.y, p.x, false);
     while (dir != Direction.NONE) {
       openPassage(p.y, p.x, dir);
       p = dir.movePoint(p);
-      m_included_cells.get(p.y).set(p.x, true);
-      dir = getRandomDirection(p.y, p.x);
+      include(p.y, p.x);
+      dir = getRandomDirection(p.y, p.x, false);
     }
   }
 
   /**
-   * Busca por todo el tablero una casilla explorada y que puede ser el origen
-   * de una nueva exploración (el método {@link HuntAndKill#walk} puede empezar
-   * por esa casilla). Dicha casilla con ese posible camino es explorado por el
-   * método hunt (kill).
+   * Busca una casilla no explorada que esté junto a una explorada, la une a
+   * ella y la devuelve para que el método {@link HuntAndKill#walk} pueda
+   * continuar desde esa casilla.
    *
    * @return Devuelve una posición por la cual el "cursor" puede seguir
-   *         explorando.
+   *         explorando, o {@code null} si ya se han explorado todas.
    */
   private Point hunt () {
-    for (int y = 0; y < m_rows; y++) {
-      for (int x = 0; x < m_columns; x++) {
-        Direction dir = getRandomDirection(y, x);
-        if (dir != Direction.NONE) {
-          openPassage(y, x, dir);
-          Point p = dir.movePoint(new Point(x, y));
-          m_included_cells.get(p.y).set(p.x, true);
-          return p;
-        }
+    // Saltamos las filas completas y las celdas ya incluidas de la fila actual
+    while (m_hunt_row < m_rows && m_row_remaining[m_hunt_row] == 0) {
+      m_hunt_row++;
+      m_hunt_column = 0;
+    }
+    if (m_hunt_row == m_rows)
+      return null;
+
+    while (isIncluded(m_hunt_row, m_hunt_column))
+      m_hunt_column++;
+
+    // Como todas las celdas anteriores están incluidas, la celda del cursor
+    // tiene siempre una vecina incluida por arriba o por la izquierda, salvo
+    // que sea la celda (0, 0). En ese caso se busca a partir de ella.
+    int y = m_hunt_row, x = m_hunt_column;
+    Direction dir = getRandomDirection(y, x, true);
+    while (dir == Direction.NONE) {
+      if (++x == m_columns) {
+        x = 0;
+        y++;
       }
+      if (!isIncluded(y, x))
+        dir = getRandomDirection(y, x, true);
     }
-    return null;
+
+    openPassage(y, x, dir);
+    include(y, x);
+    return new Point(x, y);
+  }
+
+  /**
+   * Marca una celda como incluida en el laberinto.
+   *
+   * @param y
+   *          Posición en el eje Y.
+   * @param x
+   *          Posición en el eje X.
+   */
+  private void include (int y, int x) {
+    m_included_cells.set(y * m_columns + x);
+    m_row_remaining[y]--;
+  }
+
+  /**
+   * Indica si una celda ya forma parte del laberinto.
+   *
+   * @param y
+   *          Posición en el eje Y.
+   * @param x
+   *          Posición en el eje X.
+   * @return Si la celda está incluida o no.
+   */
+  private boolean isIncluded (int y, int x) {
+    return m_included_cells.get(y * m_columns + x);
   }
 
   /**
    * Obtiene una dirección aleatoria desde la posición indicada que la conecte
-   * con una posición no explorada dentro del laberinto que se está creando.
+   * con una posición dentro del laberinto que se está creando.
    *
    * @param y
    *          Posición en el eje Y desde la que se quiere partir.
    * @param x
    *          Posición en el eje X desde la que se quiere partir.
+   * @param included
+   *          Si se buscan posiciones ya exploradas ({@code true}) o no
+   *          exploradas ({@code false}).
    * @return Una direccion aleatoria dentro de las posibles a las que ir
    *         en la casilla dada por las posiciones i y j.
    */
-  private Direction getRandomDirection (int y, int x) {
-    ArrayList <Direction> directions = new ArrayList <Direction>();
-    Point actual = new Point(x, y);
-
-    // Comprobamos qué posiciones de alrededor son válidas y no se han visitado
-    // Suponemos que la posición proporcionada es válida para empezar
-    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
-      Direction dir = Direction.fromIndex(i);
-      Point next = dir.movePoint(actual);
-
-      if (next.y >= 0 && next.y < m_rows && next.x >= 0 && next.x < m_columns
-          && !m_included_cells.get(next.y).get(next.x))
-        directions.add(dir);
-    }
-
-    if (directions.isEmpty())
+  private Direction getRandomDirection (int y, int x, boolean included) {
+    int n = 0;
+
+    // Comprobamos qué posiciones de alrededor son válidas y cumplen la
+    // condición. Suponemos que la posición proporcionada es válida.
+    if (y > 0 && isIncluded(y - 1, x) == included)
+      m_candidates[n++] = Direction.UP;
+    if (y < m_rows - 1 && isIncluded(y + 1, x) == included)
+      m_candidates[n++] = Direction.DOWN;
+    if (x > 0 && isIncluded(y, x - 1) == included)
+      m_candidates[n++] = Direction.LEFT;
+    if (x < m_columns - 1 && isIncluded(y, x + 1) == included)
+      m_candidates[n++] = Direction.RIGHT;
+
+    if (n == 0)
       return Direction.NONE;
     else
-      return directions.get((int) (Math.random() * directions.size()));
+      return m_candidates[m_random.nextInt(n)];
   }
 
 }
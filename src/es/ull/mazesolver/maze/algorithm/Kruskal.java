@@ -25,19 +25,22 @@
  */
 package es.ull.mazesolver.maze.algorithm;
 
-import java.util.ArrayList;
-
 import es.ull.mazesolver.maze.MazeCreationAlgorithm;
 import es.ull.mazesolver.util.Direction;
-import es.ull.mazesolver.util.Pair;
 
 /**
  * Implementación del algoritmo de Kruskal para la generación aleatoria de
  * laberintos.
+ *
+ * Cada pared interior se representa con un único entero: las paredes entre dos
+ * celdas de la misma fila tienen índices en [0, filas * (columnas - 1)), y las
+ * que separan dos filas consecutivas ocupan el resto. Los conjuntos disjuntos
+ * se guardan en un union-find con compresión de caminos y unión por rango, de
+ * manera que el coste total es prácticamente lineal en el número de celdas.
  */
 public class Kruskal extends MazeCreationAlgorithm {
-  private ArrayList <Integer> disjoint_set;
-  private ArrayList <short []> walls;
+  private int [] m_parent;
+  private byte [] m_rank;
 
   /**
    * Constructor. Crea una nueva instancia de la clase.
@@ -49,16 +52,6 @@ public class Kruskal extends MazeCreationAlgorithm {
    */
   public Kruskal (int rows, int columns) {
     super(rows, columns);
-    walls = new ArrayList <short []>();
-
-    // Creamos una matriz de visitados para saber en cada momento cuáles son
-    // las celdas que no se han visitado todavía.
-    disjoint_set = new ArrayList <Integer>();
-
-    for (int i = 0; i < m_rows * m_columns; i++)
-      disjoint_set.add(i);
-
-    addAll();
   }
 
   /*
@@ -68,42 +61,68 @@ public class Kruskal extends MazeCreationAlgorithm {
    */
   @Override
   public void runCreationAlgorithm () {
-    int nextWall, y, x;
-    while (!walls.isEmpty()) {
-      // Seleccionamos una celda y una direccion de dentro de las posibles que
-      // no hemos escogido aun.
-      nextWall = (int) Math.round(0 + (Math.random() * (walls.size() - 1)));
-      y = walls.get(nextWall)[0];
-      x = walls.get(nextWall)[1];
-      Direction dir = Direction.fromValue(walls.get(nextWall)[2]);
-      Pair <Integer, Integer> desp = dir.decompose();
-
-      // Si la celda vecina a la posicion i,j +dir pertenece a otro conjunto
-      // entonces, la marcamos del mismo conjunto (y a cada elemento del mismo)
-      // y abrimos el pasillo por ahi.
-      if (value(y, x) != value(y + desp.second, x + desp.first)) {
+    int horizontal = m_rows * (m_columns - 1);
+    int [] walls = shuffledWalls(horizontal + (m_rows - 1) * m_columns);
+
+    // Inicialmente cada celda forma su propio conjunto
+    m_parent = new int [m_rows * m_columns];
+    m_rank = new byte [m_rows * m_columns];
+    for (int i = 0; i < m_parent.length; i++)
+      m_parent[i] = i;
+
+    // Un árbol de expansión tiene exactamente celdas - 1 aristas, así que
+    // podemos parar en cuanto se hayan abierto todas
+    int remaining = m_parent.length - 1;
+    for (int i = 0; i < walls.length && remaining > 0; i++) {
+      int wall = walls[i], y, x;
+      Direction dir;
+
+      if (wall < horizontal) {
+        y = wall / (m_columns - 1);
+        x = wall % (m_columns - 1);
+        dir = Direction.RIGHT;
+      }
+      else {
+        y = (wall - horizontal) / m_columns;
+        x = (wall - horizontal) % m_columns;
+        dir = Direction.DOWN;
+      }
+
+      // Si las celdas a ambos lados de la pared pertenecen a conjuntos
+      // distintos, abrimos el pasillo y unimos los conjuntos
+      int cell = pos(y, x);
+      int next = dir == Direction.RIGHT? cell + 1 : cell + m_columns;
+      if (union(cell, next)) {
         openPassage(y, x, dir);
-        union(value(y, x), value(y + desp.second, x + desp.first));
+        remaining--;
       }
-      walls.remove(nextWall);
     }
+
+    m_parent = null;
+    m_rank = null;
   }
 
   /**
-   * Añade todos los muros a la lista de muros a elegir aleatoriamente.
+   * Crea un array con los índices de todas las paredes interiores en orden
+   * aleatorio mediante el algoritmo de Fisher-Yates.
+   *
+   * @param n
+   *          Número de paredes interiores.
+   * @return Índices de las paredes desordenados.
    */
-  private void addAll () {
-    for (int y = 0; y < m_rows; y++)
-      for (int x = 0; x < m_columns; x++)
-        for (short k = 1; k < Direction.MAX_DIRECTIONS; k++) {
-          Direction dir = Direction.fromIndex(k);
-          Pair <Integer, Integer> desp = dir.decompose();
-          if ((y + desp.second >= 0) && (x + desp.first >= 0) && (y + desp.second < m_rows)
-              && (x + desp.first < m_columns)) {
-            short [] aux = {(short) y, (short) x, dir.val};
-            walls.add(aux);
-          }
-        }
+  private int [] shuffledWalls (int n) {
+    int [] walls = new int [n];
+    for (int i = 0; i < n; i++)
+      walls[i] = i;
+
+    for (int i = n - 1; i > 0; i--) {
+      int j = m_random.nextInt(i + 1);
+      int aux = walls[i];
+      walls[i] = walls[j];
+      walls[j] = aux;
+    }
+
+    return walls;
   }
 
   /**
@@ -117,42 +136,57 @@ public class Kruskal extends MazeCreationAlgorithm {
    * @return La posición del vector dada por el punto (x, y).
    */
   private int pos (int y, int x) {
-    // FIXME Esto está invertido. La fórmula real sería (y * m_columns) + x
-    // No lo cambio porque no sé si hay código que depende de este
-    // comportamiento erróneo.
-    return (x * m_columns) + y;
+    return (y * m_columns) + x;
   }
 
   /**
-   * Une dos conjuntos disjuntos, de la forma siguiente: Todo conjunto que
-   * tenga como valor representativo value_from, lo mueve al conjunto de valor
-   * value_to.
+   * Une los conjuntos a los que pertenecen dos celdas. El conjunto de menor
+   * rango pasa a colgar del de mayor rango.
    *
-   * @param value_from
-   *          Valor representativo del conjunto que se va a ser unido al otro
-   *          conjunto.
-   * @param value_to
-   *          Valor representativo del conjunto al que se va a unir el otro
-   *          conjunto.
+   * @param a
+   *          Índice de la primera celda.
+   * @param b
+   *          Índice de la segunda celda.
+   * @return {@code true} si las celdas estaban en conjuntos distintos y se han
+   *         unido, o {@code false} si ya pertenecían al mismo conjunto.
    */
-  private void union (int value_from, int value_to) {
-    for (int k = 0; k < disjoint_set.size(); k++)
-      if (disjoint_set.get(k) == value_from)
-        disjoint_set.set(k, value_to);
+  private boolean union (int a, int b) {
+    int root_a = find(a), root_b = find(b);
+    if (root_a == root_b)
+      return false;
+
+    if (m_rank[root_a] < m_rank[root_b])
+      m_parent[root_a] = root_b;
+    else if (m_rank[root_a] > m_rank[root_b])
+      m_parent[root_b] = root_a;
+    else {
+      m_parent[root_b] = root_a;
+      m_rank[root_a]++;
+    }
+
+    return true;
   }
 
   /**
-   * Obtiene el valor del conjunto del elemento (x, y).
+   * Obtiene el representante del conjunto al que pertenece una celda, haciendo
+   * que todas las celdas del camino recorrido apunten directamente a él.
    *
-   * @param y
-   *          Posición en el eje Y.
-   * @param x
-   *          Posición en el eje X.
-   *
-   * @return Valor del conjunto del elemento (x, y).
+   * @param cell
+   *          Índice de la celda.
+   * @return Índice de la celda representante del conjunto.
    */
-  private int value (int y, int x) {
-    return disjoint_set.get(pos(y, x));
+  private int find (int cell) {
+    int root = cell;
+    while (m_parent[root] != root)
+      root = m_parent[root];
+
+    while (m_parent[cell] != root) {
+      int next = m_parent[cell];
+      m_parent[cell] = root;
+      cell = next;
+    }
+
+    return root;
   }
 
 }
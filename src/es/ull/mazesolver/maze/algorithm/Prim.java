@@ -25,19 +25,27 @@
  */
 package es.ull.mazesolver.maze.algorithm;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 
+import es.ull.mazesolver.gui.MainWindow;
 import es.ull.mazesolver.maze.MazeCreationAlgorithm;
 import es.ull.mazesolver.util.Direction;
-import es.ull.mazesolver.util.Pair;
 
 /**
  * Implementación del algoritmo de Prim para la generación aleatoria de
  * laberintos perfectos.
+ *
+ * La frontera se guarda como un array de identificadores de pared: la pared
+ * entre la celda {@code c} y la de su derecha es {@code 2 * c}, y la pared
+ * entre {@code c} y la de debajo es {@code 2 * c + 1}. Para sacar una pared
+ * aleatoria se sustituye por la última del array, por lo que cada paso tiene
+ * coste constante.
  */
 public class Prim extends MazeCreationAlgorithm {
-  private ArrayList <ArrayList <Boolean>> m_included_cells;
-  private ArrayList <short []> walls;
+  private BitSet m_included_cells;
+  private int [] m_frontier;
+  private int m_frontier_size;
 
   /**
    * Constructor. Crea una nueva instancia de la clase.
@@ -49,16 +57,11 @@ public class Prim extends MazeCreationAlgorithm {
    */
   public Prim (int rows, int columns) {
     super(rows, columns);
-    walls = new ArrayList <short []>();
-    m_included_cells = new ArrayList <ArrayList <Boolean>>(rows);
 
-    // Creamos una matriz de visitados para saber en cada momento cuáles son
-    // las celdas que no se han visitado todavía.
-    for (int y = 0; y < rows; y++) {
-      m_included_cells.add(new ArrayList <Boolean>(columns));
-      for (int x = 0; x < columns; x++)
-        m_included_cells.get(y).add(false);
-    }
+    // Los identificadores de pared tienen que caber en un entero
+    if ((long) rows * columns * 2 > Integer.MAX_VALUE)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().indexOutOfRange());
   }
 
   /*
@@ -68,53 +71,70 @@ public class Prim extends MazeCreationAlgorithm {
    */
   @Override
   public void runCreationAlgorithm () {
-    short y = 0;
-    short x = 0;
+    m_included_cells = new BitSet(m_rows * m_columns);
+    m_frontier = new int [Math.max(16, 2 * (m_rows + m_columns))];
+    m_frontier_size = 0;
+
     // Empezar el laberinto con todo lleno de paredes y selecionar una celda.
-    m_included_cells.get(y).set(x, true);
-    addCell(y, x);
-    // Mientras haya celdas sin visitar, seguir visitando.
-    int nextWall = 0;
-    while (!walls.isEmpty()) {
-      // Seleccionamos una celda y una direccion de dentro de las posibles que
-      // no hemos escogido aun.
-      nextWall = (int) Math.round(0 + (Math.random() * (walls.size() - 1)));
-      y = walls.get(nextWall)[0];
-      x = walls.get(nextWall)[1];
-      Direction dir = Direction.fromValue(walls.get(nextWall)[2]);
-      Pair <Integer, Integer> desp = dir.decompose();
+    addCell(0);
+
+    // Mientras queden paredes en la frontera, seguir visitando.
+    while (m_frontier_size > 0) {
+      // Seleccionamos una pared aleatoria de la frontera y la quitamos de ella
+      // poniendo en su lugar la última
+      int next = m_random.nextInt(m_frontier_size);
+      int wall = m_frontier[next];
+      m_frontier[next] = m_frontier[--m_frontier_size];
 
-      // Si la celda vecina a la posicion i,j +dir sigue estando disponible
-      // la elegimos y agregamos las celdas vecinas a esta al conjunto, si no
-      // eliminamos dicha posicion con dicha direccion para que no vuelva
-      // a salir de forma aleatoria
-      if (!m_included_cells.get(y + desp.second).get(x + desp.first)) {
-        openPassage(y, x, dir);
-        m_included_cells.get(y + desp.second).set(x + desp.first, true);
-        addCell(y + desp.second, x + desp.first);
+      int cell = wall >>> 1;
+      boolean right = (wall & 1) == 0;
+      int neighbour = right? cell + 1 : cell + m_columns;
+
+      // Si una de las dos celdas que separa la pared sigue estando disponible
+      // abrimos el pasillo y agregamos sus paredes a la frontera
+      boolean cell_included = m_included_cells.get(cell);
+      if (cell_included != m_included_cells.get(neighbour)) {
+        openPassage(cell / m_columns, cell % m_columns,
+                    right? Direction.RIGHT : Direction.DOWN);
+        addCell(cell_included? neighbour : cell);
       }
-      walls.remove(nextWall);
     }
+
+    m_included_cells = null;
+    m_frontier = null;
   }
 
   /**
-   * Añade las celdas adyacentes a la (x, y) a la lista de paredes.
+   * Marca una celda como incluida en el laberinto y añade a la frontera las
+   * paredes que la separan de las celdas adyacentes no incluidas todavía.
    *
-   * @param y
-   *          Posición en el eje Y desde la que se quiere partir.
-   * @param x
-   *          Posición en el eje X desde la que se quiere partir.
+   * @param cell
+   *          Índice de la celda ({@code fila * columnas + columna}).
    */
-  private void addCell (final int y, final int x) {
-    for (short k = 1; k < Direction.MAX_DIRECTIONS; k++) {
-      Direction dir = Direction.fromIndex(k);
-      Pair <Integer, Integer> desp = dir.decompose();
-      if ((y + desp.second >= 0) && (x + desp.first >= 0) && (y + desp.second < m_rows)
-          && (x + desp.first < m_columns)
-          && !m_included_cells.get(y + desp.second).get(x + desp.first)) {
-        short [] aux = {(short) y, (short) x, dir.val};
-        walls.add(aux);
-      }
-    }
+  private void addCell (int cell) {
+    int y = cell / m_columns, x = cell % m_columns;
+    m_included_cells.set(cell);
+
+    if (y > 0 && !m_included_cells.get(cell - m_columns))
+      addWall(2 * (cell - m_columns) + 1);
+    if (y < m_rows - 1 && !m_included_cells.get(cell + m_columns))
+      addWall(2 * cell + 1);
+    if (x > 0 && !m_included_cells.get(cell - 1))
+      addWall(2 * (cell - 1));
+    if (x < m_columns - 1 && !m_included_cells.get(cell + 1))
+      addWall(2 * cell);
+  }
+
+  /**
+   * Añade una pared a la frontera, ampliando el array si es necesario.
+   *
+   * @param wall
+   *          Identificador de la pared.
+   */
+  private void addWall (int wall) {
+    if (m_frontier_size == m_frontier.length)
+      m_frontier = Arrays.copyOf(m_frontier, (int) Math.min(Integer.MAX_VALUE - 8,
+                                                           2L * m_frontier.length));
+    m_frontier[m_frontier_size++] = wall;
   }
-}
\ No newline at end of file
+}
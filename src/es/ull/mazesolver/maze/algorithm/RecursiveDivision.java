@@ -25,21 +25,36 @@
  */
 package es.ull.mazesolver.maze.algorithm;
 
-import java.awt.Point;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import es.ull.mazesolver.maze.MazeCreationAlgorithm;
 import es.ull.mazesolver.util.Direction;
-import es.ull.mazesolver.util.Pair;
 
 /**
  * Implementación de algoritmo Division Recursiva para la generación aleatoria
  * de laberintos perfectos.
+ *
+ * Las dos mitades en las que se divide cada zona sólo modifican sus propias
+ * celdas, así que las zonas grandes se dividen en paralelo en un
+ * {@link ForkJoinPool}. Cada una de las mitades de una zona grande usa su
+ * propio generador de números aleatorios, por lo que el resultado para una
+ * semilla no depende del número de hilos.
  */
 public class RecursiveDivision extends MazeCreationAlgorithm {
 
   private final static int HORIZONTAL = 0;
   private final static int VERTICAL = 1;
 
+  /**
+   * Número mínimo de celdas que debe tener una zona para dividir sus dos
+   * mitades en tareas independientes.
+   */
+  private final static int FORK_THRESHOLD = 1 << 14;
+
+  private ForkJoinPool m_pool = ForkJoinPool.commonPool();
+
   /**
    * Constructor. Crea una nueva instancia de la clase.
    *
@@ -50,15 +65,17 @@ public class RecursiveDivision extends MazeCreationAlgorithm {
    */
   public RecursiveDivision (int rows, int columns) {
     super(rows, columns);
-    for (int y = 0; y < m_rows; y++)
-      for (int x = 0; x < m_columns; x++)
-        for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
-          Direction dir = Direction.fromIndex(i);
-          Point next = dir.movePoint(new Point(x, y));
-
-          if (next.y >= 0 && next.y < m_rows && next.x >= 0 && next.x < m_columns)
-            m_maze.get(y).get(x).toggleWall(dir);
-        }
+  }
+
+  /**
+   * Cambia el conjunto de hilos en el que se divide el laberinto.
+   *
+   * @param pool
+   *          Conjunto de hilos, o {@code null} para dividirlo secuencialmente
+   *          en el hilo actual.
+   */
+  public void setPool (ForkJoinPool pool) {
+    m_pool = pool;
   }
 
   /*
@@ -68,66 +85,125 @@ public class RecursiveDivision extends MazeCreationAlgorithm {
    */
   @Override
   protected void runCreationAlgorithm () {
-    divide(0, 0, m_columns, m_rows, chooseOrientation(m_columns, m_rows));
+    // Se parte de un laberinto sin paredes interiores
+    m_maze.fill(0);
+    for (int x = 0; x < m_columns; x++) {
+      m_maze.setWall(0, x, Direction.UP);
+      m_maze.setWall(m_rows - 1, x, Direction.DOWN);
+    }
+    for (int y = 0; y < m_rows; y++) {
+      m_maze.setWall(y, 0, Direction.LEFT);
+      m_maze.setWall(y, m_columns - 1, Direction.RIGHT);
+    }
+
+    Divide root = new Divide(0, 0, m_columns, m_rows,
+                             chooseOrientation(m_columns, m_rows, m_random), m_random);
+    if (m_pool == null)
+      root.compute();
+    else
+      m_pool.invoke(root);
   }
 
   /**
-   * Función principal recursiva que va generando sub-laberintos.
-   *
-   * @param x
-   *          Posición en el eje X desde la que se quiere partir.
-   * @param y
-   *          Posición en el eje Y desde la que se quiere partir.
-   * @param width
-   *          Número de columnas del sub laberinto.
-   * @param height
-   *          Número de filas del sub Laberinto.
-   * @param orientation
-   *          Orientación a seguir para generar el sub laberinto
+   * Tarea que divide una zona del laberinto y después cada una de sus mitades.
    */
-  private void divide (int x, int y, int width, int height, int orientation) {
-    if (height > 1 && width > 1) {
+  private class Divide extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int m_x, m_y, m_width, m_height, m_orientation;
+    private final SplittableRandom m_rng;
+
+    /**
+     * Crea la tarea que divide una zona.
+     *
+     * @param x
+     *          Posición en el eje X desde la que se quiere partir.
+     * @param y
+     *          Posición en el eje Y desde la que se quiere partir.
+     * @param width
+     *          Número de columnas del sub laberinto.
+     * @param height
+     *          Número de filas del sub Laberinto.
+     * @param orientation
+     *          Orientación a seguir para generar el sub laberinto
+     * @param rng
+     *          Generador de números aleatorios de la zona.
+     */
+    public Divide (int x, int y, int width, int height, int orientation,
+                   SplittableRandom rng) {
+      m_x = x;
+      m_y = y;
+      m_width = width;
+      m_height = height;
+      m_orientation = orientation;
+      m_rng = rng;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute () {
+      if (m_height <= 1 || m_width <= 1)
+        return;
+
+      boolean horizontal = m_orientation == HORIZONTAL;
 
       // Inicio del muro del sub laberinto
-      int wx = x, wy = y;
-      wx += (orientation == HORIZONTAL)? 0 : (int) (Math.random() * (width - 1));
-      wy += (orientation == HORIZONTAL)? (int) (Math.random() * (height - 1)) : 0;
+      int wx = m_x, wy = m_y;
+      wx += horizontal? 0 : m_rng.nextInt(m_width - 1);
+      wy += horizontal? m_rng.nextInt(m_height - 1) : 0;
 
       // Posicion de la puerta
       int px = wx, py = wy;
-      px += (orientation == HORIZONTAL)? (int) (Math.random() * width) : 0;
-      py += (orientation == HORIZONTAL)? 0 : (int) (Math.random() * height);
-
-      // Direccion a la que moverse
-      int dx = (orientation == HORIZONTAL)? 1 : 0;
-      int dy = (orientation == HORIZONTAL)? 0 : 1;
-
-      // Longitud del muro
-      int length = (orientation == HORIZONTAL)? width : height;
-
-      // Direccion donde dibujar el muro
-      Direction dir = (orientation == HORIZONTAL)? Direction.DOWN : Direction.RIGHT;
+      px += horizontal? m_rng.nextInt(m_width) : 0;
+      py += horizontal? 0 : m_rng.nextInt(m_height);
+
+      // Dibujamos el muro a ambos lados, salvo en la puerta
+      if (horizontal) {
+        for (int x = m_x; x < m_x + m_width; x++)
+          if (x != px) {
+            m_maze.setWall(wy, x, Direction.DOWN);
+            m_maze.setWall(wy + 1, x, Direction.UP);
+          }
+      }
+      else {
+        for (int y = m_y; y < m_y + m_height; y++)
+          if (y != py) {
+            m_maze.setWall(y, wx, Direction.RIGHT);
+            m_maze.setWall(y, wx + 1, Direction.LEFT);
+          }
+      }
 
-      for (int i = 0; i < length; i++) {
-        if (wx != px || wy != py) {
-          Pair <Integer, Integer> desp = dir.decompose();
-          m_maze.get(wy).get(wx).setWall(dir);
-          m_maze.get(wy + desp.second).get(wx + desp.first).setWall(dir.getOpposite());
+      int w = horizontal? m_width : wx - m_x + 1;
+      int h = horizontal? wy - m_y + 1 : m_height;
+      int nx = horizontal? m_x : wx + 1;
+      int ny = horizontal? wy + 1 : m_y;
+      int w2 = horizontal? m_width : m_x + m_width - wx - 1;
+      int h2 = horizontal? m_y + m_height - wy - 1 : m_height;
+      int o1 = chooseOrientation(w, h, m_rng);
+      int o2 = chooseOrientation(w2, h2, m_rng);
+
+      if ((long) m_width * m_height < FORK_THRESHOLD) {
+        new Divide(m_x, m_y, w, h, o1, m_rng).compute();
+        new Divide(nx, ny, w2, h2, o2, m_rng).compute();
+      }
+      else {
+        Divide first = new Divide(m_x, m_y, w, h, o1, m_rng);
+        Divide second = new Divide(nx, ny, w2, h2, o2, m_rng.split());
+
+        // Dos celdas de columnas 2k y 2k + 1 comparten byte en la rejilla, así
+        // que las mitades izquierda y derecha sólo pueden modificarse a la vez
+        // si la segunda empieza en una columna par
+        if (inForkJoinPool() && (horizontal || nx % 2 == 0))
+          invokeAll(first, second);
+        else {
+          first.compute();
+          second.compute();
         }
-        wx += dx;
-        wy += dy;
       }
-
-      int nx = x, ny = y;
-      int w = (orientation == HORIZONTAL)? width : wx - x + 1;
-      int h = (orientation == HORIZONTAL)? wy - y + 1 : height;
-      divide(nx, ny, w, h, chooseOrientation(w, h));
-
-      nx = (orientation == HORIZONTAL)? x : wx + 1;
-      ny = (orientation == HORIZONTAL)? wy + 1 : y;
-      w = (orientation == HORIZONTAL)? width : x + width - wx - 1;
-      h = (orientation == HORIZONTAL)? y + height - wy - 1 : height;
-      divide(nx, ny, w, h, chooseOrientation(w, h));
     }
   }
 
@@ -139,15 +215,17 @@ public class RecursiveDivision extends MazeCreationAlgorithm {
    *          Número de columnas del Laberinto.
    * @param height
    *          Número de filas del laberinto.
+   * @param rng
+   *          Generador de números aleatorios.
    * @return Orientación a seguir para ir dividiendo el laberinto.
    */
-  private int chooseOrientation (int width, int height) {
+  private static int chooseOrientation (int width, int height, SplittableRandom rng) {
     if (width < height)
       return HORIZONTAL;
     else if (height < width)
       return VERTICAL;
     else
-      return (int) (Math.random() * 2);
+      return rng.nextInt(2);
   }
 
 }
@@ -0,0 +1,333 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+/**
+ * @file TiledMaze.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.maze.algorithm;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import es.ull.mazesolver.gui.MainWindow;
+import es.ull.mazesolver.maze.MazeCreationAlgorithm;
+import es.ull.mazesolver.maze.MazeGrid;
+import es.ull.mazesolver.util.Direction;
+
+/**
+ * Algoritmo que divide el laberinto en bloques y genera cada uno de ellos en
+ * paralelo con otro algoritmo de creación. Después une los bloques abriendo un
+ * único pasillo entre cada par de bloques adyacentes que formen parte de un
+ * árbol de expansión aleatorio de los bloques, de forma que si el algoritmo
+ * usado en cada bloque crea laberintos perfectos, el resultado también lo es.
+ *
+ * Las columnas en las que empieza cada bloque son siempre pares, de manera que
+ * dos bloques nunca comparten bytes en la {@link MazeGrid} y pueden escribirse
+ * desde hilos distintos.
+ */
+public class TiledMaze extends MazeCreationAlgorithm {
+  /**
+   * Número aproximado de filas y columnas de cada bloque si no se especifica.
+   */
+  public static final int DEFAULT_TILE_SIZE = 512;
+
+  private final Constructor <? extends MazeCreationAlgorithm> m_tile_algorithm;
+  private final int [] m_row_bounds, m_column_bounds;
+  private ForkJoinPool m_pool = ForkJoinPool.commonPool();
+
+  /**
+   * Constructor. Crea una nueva instancia de la clase que genera cada bloque
+   * con el algoritmo de Kruskal.
+   *
+   * @param rows
+   *          Número de filas del laberinto.
+   * @param columns
+   *          Número de columnas del laberinto.
+   */
+  public TiledMaze (int rows, int columns) {
+    this(rows, columns, Kruskal.class, DEFAULT_TILE_SIZE);
+  }
+
+  /**
+   * Constructor. Crea una nueva instancia de la clase.
+   *
+   * @param rows
+   *          Número de filas del laberinto.
+   * @param columns
+   *          Número de columnas del laberinto.
+   * @param tile_algorithm
+   *          Algoritmo con el que generar cada bloque. Debe tener un
+   *          constructor público que reciba el número de filas y columnas.
+   * @param tile_size
+   *          Número aproximado de filas y columnas de cada bloque.
+   */
+  public TiledMaze (int rows, int columns,
+                    Class <? extends MazeCreationAlgorithm> tile_algorithm, int tile_size) {
+    super(rows, columns);
+
+    try {
+      m_tile_algorithm = tile_algorithm.getConstructor(int.class, int.class);
+    }
+    catch (NoSuchMethodException | SecurityException | NullPointerException e) {
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().invalidMazeCreationAlgorithm(), e);
+    }
+
+    // Los bloques tienen que poder generarse con cualquier algoritmo, así que
+    // no pueden ser más pequeños que el mínimo (contando con que en las
+    // columnas se pierde una al redondear a un número par)
+    tile_size = Math.max(tile_size, 2 * Math.max(MIN_ROWS, MIN_COLUMNS));
+    m_row_bounds = bounds(rows, tile_size, false);
+    m_column_bounds = bounds(columns, tile_size, true);
+  }
+
+  /**
+   * Cambia el conjunto de hilos en el que se generan los bloques.
+   *
+   * @param pool
+   *          Conjunto de hilos, o {@code null} para generar los bloques
+   *          secuencialmente en el hilo actual.
+   */
+  public void setPool (ForkJoinPool pool) {
+    m_pool = pool;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see es.ull.mazesolver.maze.MazeCreationAlgorithm#runCreationAlgorithm()
+   */
+  @Override
+  protected void runCreationAlgorithm () {
+    int tile_rows = m_row_bounds.length - 1, tile_columns = m_column_bounds.length - 1;
+
+    // Cada bloque recibe su propio generador, creado en orden desde el hilo
+    // actual para que el resultado sólo dependa de la semilla
+    ArrayList <Callable <Void>> tasks = new ArrayList <Callable <Void>>();
+    for (int ty = 0; ty < tile_rows; ty++)
+      for (int tx = 0; tx < tile_columns; tx++)
+        tasks.add(createTile(m_row_bounds[ty], m_column_bounds[tx], m_row_bounds[ty + 1],
+                             m_column_bounds[tx + 1], m_random.split()));
+
+    if (m_pool == null || tasks.size() < 2) {
+      for (Callable <Void> task: tasks)
+        runTile(task);
+    }
+    else {
+      for (Future <Void> f: m_pool.invokeAll(tasks)) {
+        try {
+          f.get();
+        }
+        catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+          throw new IllegalStateException(e.getCause());
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+
+    joinTiles(tile_rows, tile_columns);
+  }
+
+  /**
+   * Crea la tarea que genera un bloque y lo copia en el laberinto.
+   *
+   * @param y0
+   *          Primera fila del bloque.
+   * @param x0
+   *          Primera columna del bloque.
+   * @param y1
+   *          Fila siguiente a la última del bloque.
+   * @param x1
+   *          Columna siguiente a la última del bloque.
+   * @param random
+   *          Generador de números aleatorios del bloque.
+   * @return Tarea que genera el bloque.
+   */
+  private Callable <Void> createTile (final int y0, final int x0, final int y1, final int x1,
+                                      final SplittableRandom random) {
+    return new Callable <Void>() {
+      @Override
+      public Void call () throws Exception {
+        MazeCreationAlgorithm alg = m_tile_algorithm.newInstance(y1 - y0, x1 - x0);
+        alg.setRandom(random);
+        MazeGrid tile = alg.createMaze();
+
+        // La salida del bloque se descarta cerrando de nuevo sus bordes
+        for (int y = y0; y < y1; y++)
+          for (int x = x0; x < x1; x++) {
+            int walls = tile.getWalls(y - y0, x - x0);
+            if (y == y0)
+              walls |= Direction.UP.val;
+            if (y == y1 - 1)
+              walls |= Direction.DOWN.val;
+            if (x == x0)
+              walls |= Direction.LEFT.val;
+            if (x == x1 - 1)
+              walls |= Direction.RIGHT.val;
+            m_maze.setWalls(y, x, walls);
+          }
+
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Ejecuta la tarea de generación de un bloque en el hilo actual.
+   *
+   * @param task
+   *          Tarea creada por {@link TiledMaze#createTile}.
+   */
+  private void runTile (Callable <Void> task) {
+    try {
+      task.call();
+    }
+    catch (InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new IllegalStateException(e.getCause());
+    }
+    catch (RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Une los bloques abriendo un pasillo aleatorio en la frontera de cada par
+   * de bloques adyacentes que forman un árbol de expansión aleatorio. Para
+   * elegir el árbol se aplica el algoritmo de Kruskal sobre los bloques.
+   *
+   * @param tile_rows
+   *          Número de filas de bloques.
+   * @param tile_columns
+   *          Número de columnas de bloques.
+   */
+  private void joinTiles (int tile_rows, int tile_columns) {
+    // Fronteras entre bloques: primero las verticales (entre un bloque y el de
+    // su derecha) y después las horizontales (entre un bloque y el de debajo)
+    int vertical = tile_rows * (tile_columns - 1);
+    int [] borders = new int [vertical + (tile_rows - 1) * tile_columns];
+    for (int i = 0; i < borders.length; i++)
+      borders[i] = i;
+
+    for (int i = borders.length - 1; i > 0; i--) {
+      int j = m_random.nextInt(i + 1);
+      int aux = borders[i];
+      borders[i] = borders[j];
+      borders[j] = aux;
+    }
+
+    int [] parent = new int [tile_rows * tile_columns];
+    for (int i = 0; i < parent.length; i++)
+      parent[i] = i;
+
+    for (int border: borders) {
+      int ty, tx, neighbour;
+      boolean right = border < vertical;
+
+      if (right) {
+        ty = border / (tile_columns - 1);
+        tx = border % (tile_columns - 1);
+        neighbour = ty * tile_columns + tx + 1;
+      }
+      else {
+        ty = (border - vertical) / tile_columns;
+        tx = (border - vertical) % tile_columns;
+        neighbour = (ty + 1) * tile_columns + tx;
+      }
+
+      int root_a = find(parent, ty * tile_columns + tx), root_b = find(parent, neighbour);
+      if (root_a != root_b) {
+        parent[root_a] = root_b;
+
+        if (right) {
+          int y = m_row_bounds[ty] + m_random.nextInt(m_row_bounds[ty + 1] - m_row_bounds[ty]);
+          openPassage(y, m_column_bounds[tx + 1] - 1, Direction.RIGHT);
+        }
+        else {
+          int x = m_column_bounds[tx] +
+                  m_random.nextInt(m_column_bounds[tx + 1] - m_column_bounds[tx]);
+          openPassage(m_row_bounds[ty + 1] - 1, x, Direction.DOWN);
+        }
+      }
+    }
+  }
+
+  /**
+   * Obtiene el representante del conjunto de bloques al que pertenece uno,
+   * acortando el camino recorrido.
+   *
+   * @param parent
+   *          Padre de cada bloque en el bosque de conjuntos disjuntos.
+   * @param tile
+   *          Índice del bloque.
+   * @return Índice del bloque representante del conjunto.
+   */
+  private static int find (int [] parent, int tile) {
+    while (parent[tile] != tile) {
+      parent[tile] = parent[parent[tile]];
+      tile = parent[tile];
+    }
+    return tile;
+  }
+
+  /**
+   * Calcula los límites de los bloques en una dimensión, repartiendo el resto
+   * entre los bloques para que todos tengan un tamaño parecido.
+   *
+   * @param length
+   *          Número de filas o columnas del laberinto.
+   * @param tile_size
+   *          Tamaño aproximado de cada bloque.
+   * @param even
+   *          Si los límites tienen que ser pares.
+   * @return Array con el inicio de cada bloque seguido de {@code length}.
+   */
+  private static int [] bounds (int length, int tile_size, boolean even) {
+    int tiles = Math.max(1, length / tile_size);
+    int [] bounds = new int [tiles + 1];
+
+    for (int i = 0; i < tiles; i++) {
+      bounds[i] = (int) ((long) i * length / tiles);
+      if (even)
+        bounds[i] &= ~1;
+    }
+    bounds[tiles] = length;
+
+    return bounds;
+  }
+
+}
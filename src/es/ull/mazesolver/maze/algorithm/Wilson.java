@@ -25,8 +25,7 @@
  */
 package es.ull.mazesolver.maze.algorithm;
 
-import java.awt.Point;
-import java.util.ArrayList;
+import java.util.BitSet;
 
 import es.ull.mazesolver.maze.MazeCreationAlgorithm;
 import es.ull.mazesolver.util.Direction;
@@ -34,10 +33,22 @@ import es.ull.mazesolver.util.Direction;
 /**
  * Implementación del algoritmo Wilson para la generación aleatoria de
  * laberintos perfectos.
+ *
+ * Todos los caminos aleatorios comparten un único array con la última
+ * dirección tomada en cada celda, de forma que el borrado de bucles se hace
+ * simplemente al sobreescribir esa dirección. Las celdas que quedan por incluir
+ * se mantienen en un conjunto del que se pueden sacar elementos aleatorios y
+ * eliminar elementos concretos en tiempo constante.
  */
 public class Wilson extends MazeCreationAlgorithm {
+  private BitSet m_included_cells;
+  private byte [] m_directions;
+
+  // Conjunto de celdas no incluidas: m_pool contiene las celdas y
+  // m_pool_index la posición de cada celda dentro de m_pool
+  private int [] m_pool;
+  private int [] m_pool_index;
   private int m_remaining;
-  private ArrayList <ArrayList <Boolean>> m_included_cells;
 
   /**
    * Constructor. Crea una nueva instancia de la clase.
@@ -49,20 +60,6 @@ public class Wilson extends MazeCreationAlgorithm {
    */
   public Wilson (int rows, int columns) {
     super(rows, columns);
-
-    // Creamos una matriz de visitados para saber en cada momento cuáles son
-    // las celdas que no se han visitado todavía.
-    m_included_cells = new ArrayList <ArrayList <Boolean>>(rows);
-
-    for (int y = 0; y < rows; y++) {
-      m_included_cells.add(new ArrayList <Boolean>(columns));
-      for (int x = 0; x < columns; x++)
-        m_included_cells.get(y).add(false);
-    }
-    m_remaining = columns * rows - 1;
-    int x = (int) (Math.random() * m_columns);
-    int y = (int) (Math.random() * m_rows);
-    m_included_cells.get(y).set(x, true);
   }
 
   /*
@@ -72,59 +69,101 @@ public class Wilson extends MazeCreationAlgorithm {
    */
   @Override
   protected void runCreationAlgorithm () {
-    while (m_remaining > 0) {
-      ArrayList <Short []> path = walk();
-      for (int i = 0; i < path.size(); i++) {
-        Short [] aux = path.get(i);
-        Point p = new Point(aux[0], aux[1]);
-        Direction dir = Direction.fromValue(aux[2]);
-        m_included_cells.get(p.y).set(p.x, true);
-        openPassage(p.y, p.x, dir);
-        m_remaining -= 1;
-      }
+    int cells = m_rows * m_columns;
+    m_included_cells = new BitSet(cells);
+    m_directions = new byte [cells];
+    m_pool = new int [cells];
+    m_pool_index = new int [cells];
+    m_remaining = cells;
+
+    for (int i = 0; i < cells; i++) {
+      m_pool[i] = i;
+      m_pool_index[i] = i;
     }
+
+    // El árbol empieza en una celda aleatoria
+    include(m_pool[m_random.nextInt(m_remaining)]);
+
+    while (m_remaining > 0)
+      walk(m_pool[m_random.nextInt(m_remaining)]);
+
+    m_included_cells = null;
+    m_directions = null;
+    m_pool = null;
+    m_pool_index = null;
   }
 
   /**
-   * Método que calcula un camino a seguir.
+   * Realiza un camino aleatorio desde la celda indicada hasta llegar a una
+   * celda ya incluida en el laberinto, y después añade al laberinto el camino
+   * resultante tras eliminar los bucles.
    *
-   * @return Lista de puntos con su respectiva dirección que hemos de seguir
-   *         para llegar a una zona visitada.
+   * @param start
+   *          Celda en la que empieza el camino.
    */
-  private ArrayList <Short []> walk () {
-    Point p_start = getRandomStarter();
-    ArrayList <ArrayList <Direction>> directionsTaken;
-    directionsTaken = new ArrayList <ArrayList <Direction>>(m_rows);
-
-    for (int y = 0; y < m_rows; y++) {
-      directionsTaken.add(new ArrayList <Direction>(m_columns));
-      for (int x = 0; x < m_columns; x++)
-        directionsTaken.get(y).add(Direction.NONE);
-    }
-    Point p = p_start;
+  private void walk (int start) {
+    int cell = start;
     do {
-      Direction dir = getRandomDirection(p.y, p.x);
-      directionsTaken.get(p.y).set(p.x, dir);
-      p = dir.movePoint(p);
+      Direction dir = getRandomDirection(cell / m_columns, cell % m_columns);
+      m_directions[cell] = (byte) dir.ordinal();
+      cell = move(cell, dir);
     }
-    while (!m_included_cells.get(p.y).get(p.x));
-
-    p = p_start;
-    ArrayList <Short []> path = new ArrayList <Short []>();
-    do {
-      Direction dir = directionsTaken.get(p.y).get(p.x);
-      Short [] pos = {(short) p.x, (short) p.y, dir.val};
-      path.add(pos);
-      p = dir.movePoint(p);
+    while (!m_included_cells.get(cell));
+
+    // Al seguir las últimas direcciones tomadas desde el principio se obtiene
+    // el camino sin bucles
+    cell = start;
+    while (!m_included_cells.get(cell)) {
+      Direction dir = Direction.fromIndex(m_directions[cell]);
+      include(cell);
+      openPassage(cell / m_columns, cell % m_columns, dir);
+      cell = move(cell, dir);
     }
-    while (!m_included_cells.get(p.y).get(p.x));
+  }
+
+  /**
+   * Marca una celda como incluida en el laberinto y la saca del conjunto de
+   * celdas pendientes.
+   *
+   * @param cell
+   *          Índice de la celda.
+   */
+  private void include (int cell) {
+    m_included_cells.set(cell);
+
+    int index = m_pool_index[cell];
+    int last = m_pool[--m_remaining];
+    m_pool[index] = last;
+    m_pool_index[last] = index;
+  }
 
-    return path;
+  /**
+   * Obtiene el índice de la celda adyacente en una dirección.
+   *
+   * @param cell
+   *          Índice de la celda de partida.
+   * @param dir
+   *          Dirección del movimiento.
+   * @return Índice de la celda adyacente.
+   */
+  private int move (int cell, Direction dir) {
+    switch (dir) {
+      case UP:
+        return cell - m_columns;
+      case DOWN:
+        return cell + m_columns;
+      case LEFT:
+        return cell - 1;
+      case RIGHT:
+        return cell + 1;
+      default:
+        return cell;
+    }
   }
 
   /**
    * Obtiene una dirección aleatoria desde la posición indicada que la conecte
-   * con una posición no explorada dentro del laberinto que se está creando.
+   * con otra posición dentro del laberinto que se está creando.
    *
    * @param y
    *          Posición en el eje Y desde la que se quiere partir.
@@ -134,38 +173,31 @@ public class Wilson extends MazeCreationAlgorithm {
    *         en la casilla dada por las posiciones i y j.
    */
   private Direction getRandomDirection (int y, int x) {
-    ArrayList <Direction> directions = new ArrayList <Direction>();
-    Point actual = new Point(x, y);
-
-    // Comprobamos qué posiciones de alrededor son válidas y no se han visitado
-    // Suponemos que la posición proporcionada es válida para empezar
-    for (int i = 1; i < Direction.MAX_DIRECTIONS; i++) {
-      Direction dir = Direction.fromIndex(i);
-      Point next = dir.movePoint(actual);
-
-      if (next.y >= 0 && next.y < m_rows && next.x >= 0 && next.x < m_columns)
-        directions.add(dir);
+    // Se repite la elección hasta que la dirección no saque del laberinto, lo
+    // que equivale a elegir de manera uniforme entre las válidas
+    while (true) {
+      Direction dir = Direction.random(m_random);
+      switch (dir) {
+        case UP:
+          if (y > 0)
+            return dir;
+          break;
+        case DOWN:
+          if (y < m_rows - 1)
+            return dir;
+          break;
+        case LEFT:
+          if (x > 0)
+            return dir;
+          break;
+        case RIGHT:
+          if (x < m_columns - 1)
+            return dir;
+          break;
+        default:
+          break;
+      }
     }
-
-    if (directions.isEmpty())
-      return Direction.NONE;
-    else
-      return directions.get((int) (Math.random() * directions.size()));
-  }
-
-  /**
-   * Obtiene un punto inicial de manera aleatoria desde el cual se puede llamar
-   * al método {@link Wilson#walk}.
-   *
-   * @return Punto inicial aleatorio para metodo walk
-   */
-  private Point getRandomStarter () {
-    ArrayList <Point> freePoints = new ArrayList <Point>();
-    for (int y = 0; y < m_rows; y++)
-      for (int x = 0; x < m_columns; x++)
-        if (!m_included_cells.get(y).get(x))
-          freePoints.add(new Point(x, y));
-    return freePoints.get((int) (Math.random() * freePoints.size()));
   }
 
 }
@@ -27,6 +27,7 @@ package es.ull.mazesolver.util;
 
 import java.awt.Point;
 import java.io.Serializable;
+import java.util.SplittableRandom;
 
 /**
  * Enum que representa una dirección de movimiento en 2D. Cada posible opción es
@@ -129,6 +130,17 @@ public enum Direction implements Serializable {
     return values[1 + (int) (Math.random() * 4.0)];
   }
 
+  /**
+   * Crea una dirección de forma aleatoria a partir del generador indicado.
+   *
+   * @param random
+   *          Generador de números aleatorios.
+   * @return Una dirección aleatoria. No va a ser {@code Direction.NONE}.
+   */
+  public static Direction random (SplittableRandom random) {
+    return values[1 + random.nextInt(4)];
+  }
+
   /**
    * Descompone la dirección en sus componentes x e y, con una magnitud de 1.
    *
@@ -0,0 +1,483 @@
+/*
+ * This file is part of MazeSolver.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2014 MazeSolver
+ * Sergio M. Afonso Fumero <theSkatrak@gmail.com>
+ * Kevin I. Robayna Hernández <kevinirobaynahdez@gmail.com>
+ */
+
+
+/**
+ * @file SimulationEngine.java
+ * @date 17/10/2026
+ */
+package es.ull.mazesolver.util;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import es.ull.mazesolver.agent.Agent;
+import es.ull.mazesolver.agent.HeuristicAgent;
+import es.ull.mazesolver.gui.MainWindow;
+import es.ull.mazesolver.maze.Maze;
+import es.ull.mazesolver.maze.MazeCell;
+
+/**
+ * Modelo de un entorno de ejecución, formado por un laberinto, un conjunto de
+ * agentes y los gestores de comunicación entre ellos. No depende de ningún
+ * componente gráfico, de modo que se puede simular sin interfaz y tan rápido
+ * como lo permita el procesador.
+ * <br><br>
+ * Las vistas pueden registrarse como {@link ChangeListener} para enterarse de
+ * los cambios en el modelo: cada vez que se ejecuta un paso o se modifica el
+ * laberinto o la lista de agentes se les notifica.
+ */
+public class SimulationEngine {
+  private Maze m_maze;
+  private ArrayList <Agent> m_agents;
+
+  // Número de agentes que hay en cada celda del laberinto, indexado por
+  // (fila * anchura + columna). Permite saber en O(1) si una celda está ocupada.
+  private int [] m_occupancy;
+
+  private BlackboardManager m_blackboard_mgr;
+  private MessageManager m_message_mgr;
+
+  // Se puede notificar desde los hilos de simulación mientras la interfaz
+  // añade o elimina vistas
+  private CopyOnWriteArrayList <ChangeListener> m_listeners;
+
+  /**
+   * Interfaz de escucha de los cambios en el modelo.
+   */
+  public static interface ChangeListener {
+    /**
+     * Llamado cada vez que cambia el estado de la simulación.
+     *
+     * @param engine
+     *          Motor de simulación que ha cambiado.
+     */
+    public void onChange (SimulationEngine engine);
+  }
+
+  /**
+   * Crea un nuevo motor de simulación sin agentes.
+   *
+   * @param maze
+   *          Laberinto en el que se basa la simulación. Puede ser compartido
+   *          entre varios motores.
+   */
+  public SimulationEngine (Maze maze) {
+    m_listeners = new CopyOnWriteArrayList <ChangeListener>();
+    m_agents = new ArrayList <Agent>();
+    setMaze(maze);
+
+    m_blackboard_mgr = new BlackboardManager();
+    m_message_mgr = new MessageManager();
+  }
+
+  /**
+   * Obtiene el laberinto sobre el que se realiza la simulación.
+   *
+   * @return Laberinto base de la simulación.
+   */
+  public Maze getMaze () {
+    return m_maze;
+  }
+
+  /**
+   * Cambia el laberinto sobre el que se realiza la simulación.
+   *
+   * @param maze
+   *          Nuevo laberinto.
+   */
+  public void setMaze (Maze maze) {
+    if (maze == null)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().invalidMaze());
+
+    m_maze = maze;
+    m_occupancy = new int [maze.getWidth() * maze.getHeight()];
+    for (Agent ag: m_agents) {
+      occupy(ag.getX(), ag.getY(), 1);
+      if (ag instanceof HeuristicAgent)
+        ((HeuristicAgent) ag).getDistanceCalculator().setMaze(maze);
+    }
+
+    fireChanged();
+  }
+
+  /**
+   * Este método permite saber lo que puede ver un agente si mira en una
+   * dirección específica.
+   *
+   * @param pos
+   *          Posición desde la que mirar.
+   * @param dir
+   *          Dirección hacia la que mirar.
+   * @return Lo que vería un agente en la posición especificada si mirara hacia
+   *         la dirección indicada.
+   */
+  public MazeCell.Vision look (Point pos, Direction dir) {
+    // Si el agente está fuera del laberinto, no dejamos que se mueva. De esta
+    // forma, cuando un agente sale del laberinto se queda quieto fuera del
+    // mismo y no vuelve a entrar ni se va lejos de la salida.
+    if (!m_maze.containsPoint(pos) || m_maze.hasWall(pos.y, pos.x, dir))
+      return MazeCell.Vision.WALL;
+
+    Point n_pos = dir.movePoint(pos);
+    if (!m_maze.containsPoint(n_pos))
+      return MazeCell.Vision.OFFLIMITS;
+
+    if (m_occupancy[n_pos.y * m_maze.getWidth() + n_pos.x] > 0)
+      return MazeCell.Vision.AGENT;
+
+    return MazeCell.Vision.EMPTY;
+  }
+
+  /**
+   * Indica si a partir de una posición, el movimiento hacia una determinada
+   * posición es posible o no.
+   *
+   * @param pos
+   *          Posición de partida.
+   * @param dir
+   *          Dirección de movimiento.
+   * @return true si se puede y false si no.
+   */
+  public boolean movementAllowed (Point pos, Direction dir) {
+    MazeCell.Vision vision = look(pos, dir);
+    return vision == MazeCell.Vision.EMPTY || vision == MazeCell.Vision.OFFLIMITS;
+  }
+
+  /**
+   * Añade un agente a la simulación y lo coloca en la primera celda libre del
+   * laberinto.
+   *
+   * @param ag
+   *          Agente que se quiere añadir.
+   */
+  public void addAgent (Agent ag) {
+    if (ag == null)
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().invalidAgent());
+
+    if (!m_agents.contains(ag)) {
+      ag.setEnvironment(this);
+
+      // Buscamos un hueco donde colocar el agente
+      for (int i = 0; i < m_occupancy.length; i++) {
+        if (m_occupancy[i] == 0) {
+          ag.setPosition(new Point(i % m_maze.getWidth(), i / m_maze.getWidth()));
+          break;
+        }
+      }
+
+      occupy(ag.getX(), ag.getY(), 1);
+      m_agents.add(ag);
+      fireChanged();
+    }
+  }
+
+  /**
+   * Elimina un agente de la simulación.
+   *
+   * @param ag
+   *          Referencia al agente que se quiere eliminar.
+   */
+  public void removeAgent (Agent ag) {
+    if (!m_agents.remove(ag))
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().agentNotInEnvironment());
+
+    occupy(ag.getX(), ag.getY(), -1);
+    fireChanged();
+  }
+
+  /**
+   * Coloca un agente de la simulación en otra posición del laberinto. Es
+   * necesario cambiar la posición de los agentes a través de este método para
+   * que el motor sepa qué celdas están ocupadas.
+   *
+   * @param ag
+   *          Agente que se quiere mover.
+   * @param pos
+   *          Nueva posición del agente.
+   */
+  public void setAgentPosition (Agent ag, Point pos) {
+    if (!m_agents.contains(ag))
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().agentNotInEnvironment());
+
+    occupy(ag.getX(), ag.getY(), -1);
+    ag.setPosition(pos);
+    occupy(ag.getX(), ag.getY(), 1);
+    fireChanged();
+  }
+
+  /**
+   * Extrae una referencia a un agente de la simulación.
+   *
+   * @param index
+   *          Índice del agente que se quiere consultar.
+   * @return Agente número 'index' dentro de la simulación.
+   */
+  public Agent getAgent (int index) {
+    if (index < 0 || index >= m_agents.size())
+      throw new IllegalArgumentException(
+          MainWindow.getTranslations().exception().indexOutOfRange());
+
+    return m_agents.get(index);
+  }
+
+  /**
+   * Obtiene el índice de un agente dentro de la simulación.
+   *
+   * @param ag
+   *          Agente a buscar.
+   * @return Índice del agente o -1 si no forma parte de la simulación.
+   */
+  public int indexOf (Agent ag) {
+    return m_agents.indexOf(ag);
+  }
+
+  /**
+   * Extrae una copia profunda de la lista de agentes de la simulación. Hay que
+   * tener en cuenta que cualquier modificación en esta lista no va a tener
+   * ninguna repercusión en los agentes originales.
+   *
+   * @return Copia de la lista de agentes de la simulación.
+   */
+  public ArrayList <Agent> getAgents () {
+    ArrayList <Agent> agents = new ArrayList <Agent>();
+
+    for (Agent i: m_agents)
+      agents.add((Agent) i.clone());
+
+    return agents;
+  }
+
+  /**
+   * Obtiene el número de agentes que forman parte de la simulación.
+   *
+   * @return Número de agentes.
+   */
+  public int getAgentCount () {
+    return m_agents.size();
+  }
+
+  /**
+   * Obtiene el gestor de pizarras de la simulación.
+   *
+   * @return El gestor de pizarras.
+   */
+  public BlackboardManager getBlackboardManager () {
+    return m_blackboard_mgr;
+  }
+
+  /**
+   * Obtiene el gestor de mensajes de la simulación.
+   *
+   * @return El gestor de mensajes.
+   */
+  public MessageManager getMessageManager () {
+    return m_message_mgr;
+  }
+
+  /**
+   * Ejecuta un paso de la simulación de todos los agentes y devuelve el
+   * resultado de la ejecución.
+   *
+   * @param results
+   *          Objeto que representa el resultado de la simulación, que será
+   *          actualizado en este método para notificar de agentes que han
+   *          llegado a la salida y para contar los pasos que han dado.
+   * @return true si todos los agentes han salido del laberinto y false en otro
+   *         caso.
+   */
+  public boolean runStep (SimulationResults results) {
+    m_message_mgr.flushMessageQueues();
+    boolean ended = true;
+
+    for (Agent i: m_agents) {
+      // Si el agente ya salió del laberinto no lo movemos más, pero si no ha
+      // salido hacemos que calcule su siguiente movimiento
+      Direction dir;
+      Point pos = i.getPos();
+      if (m_maze.containsPoint(pos)) {
+        dir = i.getNextMovement();
+        results.agentIterated(i);
+      }
+      else
+        dir = Direction.NONE;
+
+      // Restringimos el movimiento del agente para que no atraviese paredes
+      // u otros agentes independientemente de errores que se hayan podido
+      // cometer a la hora de programar a los agentes
+      if (movementAllowed(pos, dir)) {
+        occupy(pos.x, pos.y, -1);
+        i.doMovement(dir);
+        occupy(i.getX(), i.getY(), 1);
+        results.agentWalked(i);
+      }
+
+      if (m_maze.containsPoint(i.getPos()))
+        ended = false;
+      else
+        results.agentFinished(i);
+    }
+
+    fireChanged();
+    return ended;
+  }
+
+  /**
+   * Ejecuta pasos de simulación seguidos, sin ninguna espera entre ellos, hasta
+   * que todos los agentes salgan del laberinto o se alcance el número máximo de
+   * pasos indicado.
+   *
+   * @param results
+   *          Objeto en el que se registran los resultados de la simulación.
+   * @param max_steps
+   *          Número máximo de pasos a ejecutar. Si es negativo no hay límite.
+   * @return Número de pasos ejecutados.
+   */
+  public int run (SimulationResults results, int max_steps) {
+    int steps = 0;
+    boolean ended = false;
+
+    while (!ended && (max_steps < 0 || steps < max_steps)) {
+      ended = runStep(results);
+      steps++;
+    }
+
+    return steps;
+  }
+
+  /**
+   * Ejecuta un paso de simulación en cada uno de los motores indicados que no
+   * haya terminado todavía. Como los motores no comparten estado mutable, si se
+   * proporciona un {@link ForkJoinPool} los pasos se ejecutan de forma
+   * concurrente y el método no vuelve hasta que todos han acabado, de modo que
+   * cada llamada actúa como barrera entre pasos globales.
+   *
+   * @param engines
+   *          Motores de simulación.
+   * @param finished
+   *          Array que indica qué motores han terminado ya. Se actualiza con el
+   *          resultado del paso ejecutado.
+   * @param results
+   *          Objeto en el que se registran los resultados de la simulación.
+   * @param pool
+   *          Conjunto de hilos en el que ejecutar los pasos, o {@code null}
+   *          para ejecutarlos secuencialmente en el hilo actual.
+   * @return Número de motores que ya habían terminado antes de este paso.
+   */
+  public static int runSteps (List <SimulationEngine> engines, final boolean [] finished,
+                              final SimulationResults results, ForkJoinPool pool) {
+    ArrayList <Integer> pending = new ArrayList <Integer>();
+    for (int i = 0; i < engines.size(); i++)
+      if (!finished[i])
+        pending.add(i);
+
+    // Con un único entorno pendiente no merece la pena cambiar de hilo
+    if (pool == null || pending.size() < 2) {
+      for (int i: pending)
+        finished[i] = engines.get(i).runStep(results);
+    }
+    else {
+      ArrayList <Callable <Void>> tasks = new ArrayList <Callable <Void>>(pending.size());
+      for (final int i: pending) {
+        final SimulationEngine engine = engines.get(i);
+        tasks.add(new Callable <Void>() {
+          @Override
+          public Void call () {
+            finished[i] = engine.runStep(results);
+            return null;
+          }
+        });
+      }
+
+      for (Future <Void> f: pool.invokeAll(tasks)) {
+        try {
+          f.get();
+        }
+        catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+          throw new IllegalStateException(e.getCause());
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+
+    return engines.size() - pending.size();
+  }
+
+  /**
+   * Actualiza el número de agentes que ocupan una celda. Las posiciones fuera
+   * del laberinto se ignoran.
+   *
+   * @param x
+   *          Columna de la celda.
+   * @param y
+   *          Fila de la celda.
+   * @param delta
+   *          Variación del número de agentes en la celda.
+   */
+  private void occupy (int x, int y, int delta) {
+    if (x >= 0 && y >= 0 && x < m_maze.getWidth() && y < m_maze.getHeight())
+      m_occupancy[y * m_maze.getWidth() + x] += delta;
+  }
+
+  /**
+   * Añade una vista que quiere ser notificada de los cambios en el modelo.
+   *
+   * @param listener
+   *          Objeto que escucha los cambios.
+   */
+  public void addChangeListener (ChangeListener listener) {
+    m_listeners.addIfAbsent(listener);
+  }
+
+  /**
+   * Elimina una vista de la lista de notificaciones.
+   *
+   * @param listener
+   *          Objeto que escuchaba los cambios.
+   */
+  public void removeChangeListener (ChangeListener listener) {
+    m_listeners.remove(listener);
+  }
+
+  /**
+   * Notifica a las vistas de que el modelo ha cambiado.
+   */
+  public void fireChanged () {
+    for (ChangeListener listener: m_listeners)
+      listener.onChange(this);
+  }
+
+}
@@ -29,6 +29,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Observable;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.Timer;
 
@@ -37,7 +38,9 @@ import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.gui.environment.EnvironmentSet;
 
 /**
- * Gestor de la simulación.
+ * Gestor de la simulación en la interfaz gráfica. Lanza los pasos de cada
+ * entorno periódicamente mediante un temporizador de Swing. Para simular sin
+ * interfaz gráfica se puede utilizar directamente {@link SimulationEngine}.
  */
 public class SimulationManager extends Observable {
   private static int DEFAULT_INTERVAL = 200;
@@ -52,6 +55,7 @@ public class SimulationManager extends Observable {
   private boolean m_sim_finished;
 
   private SimulationResults m_results;
+  private boolean m_parallel;
 
   /**
    * Constructor por defecto del simulador.
@@ -62,12 +66,23 @@ public class SimulationManager extends Observable {
   public SimulationManager (EnvironmentSet env_set) {
     m_steps = -1;
     m_results = new SimulationResults();
+    m_parallel = Runtime.getRuntime().availableProcessors() > 1;
     setEnvironments(env_set);
 
     m_timer = new Timer(0, new ActionListener() {
       @Override
       public void actionPerformed (ActionEvent e) {
-        doStep();
+        // En la simulación rápida se ejecutan tantos pasos como quepan en el
+        // intervalo del temporizador, de manera que la velocidad no queda
+        // limitada por la frecuencia del mismo
+        if (m_steps >= 0) {
+          long deadline = System.currentTimeMillis() + FAST_INTERVAL;
+          do
+            doStep();
+          while (m_steps >= 0 && isRunning() && System.currentTimeMillis() < deadline);
+        }
+        else
+          doStep();
       }
     });
     m_timer.setDelay(DEFAULT_INTERVAL);
@@ -86,6 +101,27 @@ public class SimulationManager extends Observable {
       m_timer.setDelay(msec);
   }
 
+  /**
+   * Activa o desactiva la ejecución en paralelo de los entornos. Cuando está
+   * activa, en cada paso se ejecutan concurrentemente todos los entornos que no
+   * han terminado y se espera a que acaben todos antes del siguiente paso.
+   *
+   * @param parallel
+   *          Si se quieren ejecutar los entornos en paralelo.
+   */
+  public void setParallel (boolean parallel) {
+    m_parallel = parallel;
+  }
+
+  /**
+   * Indica si los entornos se ejecutan en paralelo.
+   *
+   * @return Si la ejecución en paralelo está activa.
+   */
+  public boolean isParallel () {
+    return m_parallel;
+  }
+
   /**
    * Establece el conjunto de entornos que manipula la simulación.
    *
@@ -257,17 +293,15 @@ public class SimulationManager extends Observable {
     if (m_steps > 0)
       --m_steps;
 
-    int amount_finished = 0;
-
     // Hacemos que ejecuten un paso todos los agentes de todos los entornos
     // donde no haya acabado algún agente
     ArrayList <Environment> envs = m_environments.getEnvironmentList();
-    for (int i = 0; i < envs.size(); i++) {
-      if (!m_finished[i])
-        m_finished[i] = envs.get(i).runStep(m_results);
-      else
-        amount_finished++;
-    }
+    ArrayList <SimulationEngine> engines = new ArrayList <SimulationEngine>(envs.size());
+    for (Environment env: envs)
+      engines.add(env.getEngine());
+
+    int amount_finished = SimulationEngine.runSteps(engines, m_finished, m_results,
+        m_parallel? ForkJoinPool.commonPool() : null);
 
     // Si todos los agentes han terminado de ejecutar, paramos la simulación
     if (amount_finished == m_environments.getEnvironmentCount()) {
@@ -27,15 +27,20 @@ package es.ull.mazesolver.util;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import es.ull.mazesolver.agent.Agent;
-import es.ull.mazesolver.gui.environment.Environment;
 import es.ull.mazesolver.maze.Maze;
 
 /**
  * Representa los resultados estadísticos de una simulación. También puede
  * contener los datos de una simulación todavía en ejecución, por lo que se
  * puede consultar para simulaciones abortadas también.
+ * <br><br>
+ * Se pueden registrar a la vez resultados de entornos distintos desde hilos
+ * diferentes, siempre que los agentes de un mismo entorno se ejecuten en un
+ * único hilo. La información de cada entorno se guarda por separado, por lo que
+ * sólo el acceso al índice de entornos necesita sincronización.
  */
 public class SimulationResults {
   /**
@@ -57,14 +62,14 @@ public class SimulationResults {
     }
   }
 
-  private Map <Environment, EnvironmentSimulationInfo> m_info;
+  private ConcurrentHashMap <SimulationEngine, EnvironmentSimulationInfo> m_info;
   private long m_acc_time, m_start_time;
 
   /**
    * Constructor por defecto. Inicializa los atributos de la clase.
    */
   public SimulationResults () {
-    m_info = new HashMap <Environment, EnvironmentSimulationInfo>();
+    m_info = new ConcurrentHashMap <SimulationEngine, EnvironmentSimulationInfo>();
     // Esta variable mide el tiempo que el temporizador ha estado ejecutándose
     // incluso tras hacer pausas.
     m_acc_time = 0;
@@ -148,7 +153,7 @@ public class SimulationResults {
    *          Entorno en el que buscar al ganador.
    * @return El agente que salió antes del laberinto en el entorno.
    */
-  public Agent getWinner (Environment env) {
+  public Agent getWinner (SimulationEngine env) {
     EnvironmentSimulationInfo info = m_info.get(env);
     return info != null? info.winner_agent : null;
   }
@@ -167,7 +172,7 @@ public class SimulationResults {
 
     // Buscamos entre todos los entornos donde el laberinto sea el mismo, aquel
     // agente que haya llegado el primero al exterior
-    for (Environment env: m_info.keySet()) {
+    for (SimulationEngine env: m_info.keySet()) {
       if (env.getMaze() == maze) {
         EnvironmentSimulationInfo info = m_info.get(env);
         if (info != null) {
@@ -195,7 +200,7 @@ public class SimulationResults {
    * @return Número de pasos e iteraciones que ha realizado cada agente en el
    * entorno.
    */
-  public Map <Agent, Pair<Integer, Integer>> getSteps (Environment env) {
+  public Map <Agent, Pair<Integer, Integer>> getSteps (SimulationEngine env) {
     // Utilizamos el nº de agentes guardados en lugar del nº actual en el
     // entorno porque se pueden añadir y eliminar agentes en tiempo de ejecución
     EnvironmentSimulationInfo info = m_info.get(env);
@@ -223,7 +228,7 @@ public class SimulationResults {
    *          Entorno en el que evaluar los agentes.
    * @return Tiempo que le llevó salir del laberinto al primero que salió.
    */
-  public long timeTakenFirst (Environment env) {
+  public long timeTakenFirst (SimulationEngine env) {
     EnvironmentSimulationInfo info = m_info.get(env);
     return info != null? info.first_elapsed : -1;
   }
@@ -239,7 +244,7 @@ public class SimulationResults {
   public long timeTakenFirst (Maze maze) {
     long min_time = Long.MAX_VALUE;
 
-    for (Environment env: m_info.keySet()) {
+    for (SimulationEngine env: m_info.keySet()) {
       if (env.getMaze() == maze) {
         long time = timeTakenFirst(env);
         if (time > -1 && time < min_time)
@@ -257,7 +262,7 @@ public class SimulationResults {
    *          Entorno en el que evaluar los agentes.
    * @return Tiempo que le llevó salir del laberinto al último que salió.
    */
-  public long timeTakenLast (Environment env) {
+  public long timeTakenLast (SimulationEngine env) {
     EnvironmentSimulationInfo info = m_info.get(env);
     return info != null? info.last_elapsed : -1;
   }
@@ -273,7 +278,7 @@ public class SimulationResults {
   public long timeTakenLast (Maze maze) {
     long max_time = Long.MIN_VALUE;
 
-    for (Environment env: m_info.keySet()) {
+    for (SimulationEngine env: m_info.keySet()) {
       if (env.getMaze() == maze) {
         long time = timeTakenLast(env);
         if (time > max_time)
@@ -293,13 +298,15 @@ public class SimulationResults {
    * @return Información de la simulación.
    */
   private EnvironmentSimulationInfo getInfoFromAgentsEnvironment (Agent agent) {
-    Environment env = agent.getEnvironment();
+    SimulationEngine env = agent.getEnvironment();
     EnvironmentSimulationInfo info = m_info.get(env);
 
     // Si no hay información almacenada de este agente, lo agregamos a la lista
     if (info == null) {
       info = new EnvironmentSimulationInfo();
-      m_info.put(env, info);
+      EnvironmentSimulationInfo previous = m_info.putIfAbsent(env, info);
+      if (previous != null)
+        info = previous;
     }
 
     return info;